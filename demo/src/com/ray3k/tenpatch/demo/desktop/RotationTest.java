@@ -9,13 +9,12 @@ import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
-import com.badlogic.gdx.scenes.scene2d.ui.WidgetGroup;
+import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 
 public class RotationTest extends ApplicationAdapter {
     private Stage stage;
     private Skin skin;
-    private WidgetGroup group;
     private Image image;
     
     public static void main(String[] arg) {
@@ -33,13 +32,10 @@ public class RotationTest extends ApplicationAdapter {
         root.setFillParent(true);
         stage.addActor(root);
     
-        group = new WidgetGroup();
-        group.setTransform(true);
-    
+        //the TenPatchDrawable rotates its own vertices, so no transformed group is necessary
         image = new Image(skin, "sand-ten");
-        group.addActor(image);
-        group.setOrigin(image.getWidth() / 2, image.getHeight() / 2);
-        root.add(group).size(image.getWidth(), image.getHeight());
+        image.setOrigin(Align.center);
+        root.add(image);
     }
     
     @Override
@@ -52,7 +48,7 @@ public class RotationTest extends ApplicationAdapter {
         Gdx.gl.glClearColor(1, 1, 1, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
     
-        group.setRotation((float) Gdx.input.getX() / Gdx.graphics.getWidth() * 360);
+        image.setRotation((float) Gdx.input.getX() / Gdx.graphics.getWidth() * 360);
         
         stage.act();
         stage.draw();
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * A compact record of which pixels of a region are transparent, translucent,
+ * or opaque. It is built from the Pixmap the region's texture was loaded from
+ * and stores one bit per pixel, or two bits per pixel if opaque pixels are
+ * recorded for the opaque pass. TenPatchDrawable classifies its cells with it
+ * whenever the layout of an axis changes, to skip cells that are completely
+ * transparent and optionally to draw opaque cells without blending.
+ * @author Raymond Buckley
+ * @see TenPatchDrawable#setAlphaMask(TenPatchAlphaMask)
+ */
+public class TenPatchAlphaMask {
+    /**
+     * Every pixel of the area is fully transparent.
+     */
+    public static final int EMPTY = 1;
+    /**
+     * Every pixel of the area is fully opaque.
+     */
+    public static final int OPAQUE = 2;
+    /**
+     * The area has pixels that are partially transparent or a mix of transparent and opaque pixels.
+     */
+    public static final int TRANSLUCENT = 3;
+    
+    private final int regionX, regionY, width, height;
+    /**
+     * The number of longs per row of each bit plane.
+     */
+    private final int stride;
+    private final long[] visible;
+    /**
+     * Null if opaque pixels are not recorded.
+     */
+    private final long[] opaque;
+    
+    /**
+     * Creates an alpha mask for the region from the Pixmap of its texture. Opaque pixels are not recorded.
+     * @param pixmap The image the region's texture was created from.
+     * @param region
+     */
+    public TenPatchAlphaMask(Pixmap pixmap, TextureRegion region) {
+        this(pixmap, region, false);
+    }
+    
+    /**
+     * Creates an alpha mask for the region from the Pixmap of its texture.
+     * @param pixmap The image the region's texture was created from.
+     * @param region
+     * @param opaque Whether opaque pixels are recorded, which TenPatchDrawable#setOpaquePass(boolean) requires. This
+     *               doubles the memory used by the mask.
+     */
+    public TenPatchAlphaMask(Pixmap pixmap, TextureRegion region, boolean opaque) {
+        this(pixmap, region.getRegionX(), region.getRegionY(), region.getRegionWidth(), region.getRegionHeight(), opaque);
+    }
+    
+    /**
+     * Creates an alpha mask for an area of the Pixmap. Opaque pixels are not recorded.
+     * @param pixmap
+     * @param regionX The left edge of the area in pixels.
+     * @param regionY The top edge of the area in pixels.
+     * @param width
+     * @param height
+     */
+    public TenPatchAlphaMask(Pixmap pixmap, int regionX, int regionY, int width, int height) {
+        this(pixmap, regionX, regionY, width, height, false);
+    }
+    
+    /**
+     * Creates an alpha mask for an area of the Pixmap.
+     * @param pixmap
+     * @param regionX The left edge of the area in pixels.
+     * @param regionY The top edge of the area in pixels.
+     * @param width
+     * @param height
+     * @param opaque Whether opaque pixels are recorded, which TenPatchDrawable#setOpaquePass(boolean) requires. This
+     *               doubles the memory used by the mask.
+     */
+    public TenPatchAlphaMask(Pixmap pixmap, int regionX, int regionY, int width, int height, boolean opaque) {
+        this.regionX = regionX;
+        this.regionY = regionY;
+        this.width = width;
+        this.height = height;
+        stride = (width + 63) / 64;
+        visible = new long[stride * height];
+        this.opaque = opaque ? new long[stride * height] : null;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = pixmap.getPixel(regionX + x, regionY + y) & 0xff;
+                int index = y * stride + x / 64;
+                long bit = 1L << (x & 63);
+                if (alpha > 0) visible[index] |= bit;
+                if (opaque && alpha == 255) this.opaque[index] |= bit;
+            }
+        }
+    }
+    
+    /**
+     * Returns true if the mask was created for the area of this region.
+     */
+    public boolean matches(TextureRegion region) {
+        return region.getRegionX() == regionX && region.getRegionY() == regionY && region.getRegionWidth() == width
+                && region.getRegionHeight() == height;
+    }
+    
+    /**
+     * Returns true if opaque pixels are recorded. Otherwise areas are never classified as OPAQUE.
+     */
+    public boolean hasOpaque() {
+        return opaque != null;
+    }
+    
+    /**
+     * Returns true if the pixel is not fully transparent.
+     * @param x The column of the pixel from the left edge of the region.
+     * @param y The row of the pixel from the top edge of the region.
+     * @return false if the pixel is outside of the region.
+     */
+    public boolean isVisible(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (visible[y * stride + x / 64] & 1L << (x & 63)) != 0;
+    }
+    
+    /**
+     * Classifies the pixels of an area of the region.
+     * @param x1 The left edge of the area in pixels from the left edge of the region.
+     * @param y1 The top edge of the area in pixels from the top edge of the region.
+     * @param x2 The right edge of the area, exclusive.
+     * @param y2 The bottom edge of the area, exclusive.
+     * @return EMPTY, OPAQUE, or TRANSLUCENT. An area that is not inside the region is EMPTY. Visible areas are
+     * TRANSLUCENT if opaque pixels are not recorded.
+     */
+    public int classify(int x1, int y1, int x2, int y2) {
+        x1 = Math.max(x1, 0);
+        y1 = Math.max(y1, 0);
+        x2 = Math.min(x2, width);
+        y2 = Math.min(y2, height);
+        if (x2 <= x1 || y2 <= y1) return EMPTY;
+        
+        boolean anyVisible = false;
+        boolean allOpaque = opaque != null;
+        int firstWord = x1 / 64;
+        int lastWord = (x2 - 1) / 64;
+        for (int y = y1; y < y2; y++) {
+            int row = y * stride;
+            for (int word = firstWord; word <= lastWord; word++) {
+                //the bits of this word that are inside the area
+                long bits = -1L;
+                if (word == firstWord) bits &= -1L << (x1 & 63);
+                if (word == lastWord && (x2 & 63) != 0) bits &= -1L >>> (64 - (x2 & 63));
+                if ((visible[row + word] & bits) != 0) anyVisible = true;
+                if (allOpaque && (opaque[row + word] & bits) != bits) allOpaque = false;
+                if (anyVisible && !allOpaque) return TRANSLUCENT;
+            }
+        }
+        return allOpaque ? OPAQUE : anyVisible ? TRANSLUCENT : EMPTY;
+    }
+    
+    public int getRegionX() {
+        return regionX;
+    }
+    
+    public int getRegionY() {
+        return regionY;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+}
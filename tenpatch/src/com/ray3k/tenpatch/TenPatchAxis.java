@@ -0,0 +1,713 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.Arrays;
+
+/**
+ * One axis of a TenPatch layout. The cells of a TenPatch form a grid: every
+ * column has the same horizontal placement and texture coordinates in every
+ * row and vice versa. TenPatchAxis calculates these spans for one direction so
+ * that the cells can be assembled by combining a horizontal and a vertical
+ * axis. The axis remembers the values it was laid out with, so changing only
+ * the width of a drawable does not lay out the vertical axis again.
+ * @author Raymond Buckley
+ * @see TenPatchDrawable
+ */
+class TenPatchAxis {
+    /**
+     * The number of spans in this axis. Non-stretching and stretching spans
+     * alternate, starting with a non-stretching span.
+     */
+    int count;
+    /**
+     * The offset of each span from the origin of the drawable.
+     */
+    float[] position = new float[3];
+    /**
+     * The drawn size of each span.
+     */
+    float[] size = new float[3];
+    /**
+     * The start of each span in scaled texels of the region.
+     */
+    float[] texStart = new float[3];
+    /**
+     * The end of each span in scaled texels of the region. texEnd - texStart
+     * is the size of a tile.
+     */
+    float[] texEnd = new float[3];
+    /**
+     * The texture coordinate at the start of each span.
+     */
+    float[] coordStart = new float[3];
+    /**
+     * The texture coordinate at the end of each span.
+     */
+    float[] coordEnd = new float[3];
+    /**
+     * Whether each span is one of the stretch areas.
+     */
+    boolean[] stretch = new boolean[3];
+    
+    /**
+     * The sum of the stretch areas in scaled texels.
+     */
+    float totalStretch;
+    /**
+     * The space to be distributed among the stretch areas. Negative if drawn
+     * below the size of the region.
+     */
+    float extra;
+    
+    /**
+     * The number of distinct edges between spans. Adjacent spans share an edge
+     * if their texture coordinates meet.
+     */
+    int edgeCount;
+    float[] edgePosition = new float[6];
+    float[] edgeCoord = new float[6];
+    /**
+     * The index of the edge at the start of each span.
+     */
+    int[] firstEdge = new int[3];
+    /**
+     * The index of the edge at the end of each span. Equal to the first edge
+     * if the span was trimmed away.
+     */
+    int[] lastEdge = new int[3];
+    private boolean edgesValid;
+    private float edgeTrimMin, edgeTrimMax;
+    
+    /**
+     * The number of merged spans. Adjacent spans are merged if their texture
+     * coordinates meet and they are drawn at the same scale, such as every
+     * span of an axis drawn at its natural size. Spans with a size of 0 are
+     * omitted. Only valid after computeMerged().
+     */
+    int mergedCount;
+    float[] mergedPosition = new float[3];
+    float[] mergedSize = new float[3];
+    float[] mergedCoordStart = new float[3];
+    float[] mergedCoordEnd = new float[3];
+    private boolean mergedValid;
+    /**
+     * The largest distance in pixels the seam between two spans may move
+     * when they are drawn as one.
+     */
+    private static final float MERGE_TOLERANCE = .01f;
+    /**
+     * The distance a span may reach past the draw size because of rounding.
+     */
+    private static final float BOUNDS_TOLERANCE = .01f;
+    
+    /**
+     * The number of tile pieces. Only valid after updateTiles().
+     */
+    int pieceCount;
+    float[] piecePosition = new float[8];
+    float[] pieceSize = new float[8];
+    float[] pieceCoordStart = new float[8];
+    float[] pieceCoordEnd = new float[8];
+    /**
+     * The index of the first tile piece of each span. The pieces of span i end
+     * at firstPiece[i + 1].
+     */
+    int[] firstPiece = new int[4];
+    private boolean tilesValid;
+    private float tileOffset, tileScale;
+    private boolean tileMirror;
+    
+    private int[] stretchAreas = new int[0];
+    private float regionSize = -1, scale, drawSize, coord1, coord2, inset;
+    private int crushMode;
+    /**
+     * Identifies the current layout of this axis. Changes every time the axis is laid out. Counted per axis so that
+     * axes can be laid out on several threads.
+     */
+    int generation;
+    private boolean normalize;
+    private int[] normalizedAreas = new int[0];
+    private int[] normalizeScratch = new int[0];
+    
+    /**
+     * Lays out this axis if any of the values differ from the last layout.
+     * @return true if the axis was laid out again.
+     * @see TenPatchAxis#layout(int[], float, float, float, int, float, float, float, boolean)
+     */
+    boolean update(int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+        if (matches(stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize)) return false;
+        
+        //the stretch areas are copied because they are public and may be modified in place
+        if (this.stretchAreas.length != stretchAreas.length) this.stretchAreas = new int[stretchAreas.length];
+        System.arraycopy(stretchAreas, 0, this.stretchAreas, 0, stretchAreas.length);
+        this.regionSize = regionSize;
+        this.scale = scale;
+        this.drawSize = drawSize;
+        this.crushMode = crushMode;
+        this.coord1 = coord1;
+        this.coord2 = coord2;
+        this.inset = inset;
+        this.normalize = normalize;
+        layout(stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize);
+        return true;
+    }
+    
+    /**
+     * Prepares this axis to receive count spans of a layout that was calculated before with the specified values. The
+     * caller fills in the spans, totalStretch, and extra.
+     * @see TenPatchLayoutStore
+     */
+    void restore(int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize, int count) {
+        if (this.stretchAreas.length != stretchAreas.length) this.stretchAreas = new int[stretchAreas.length];
+        System.arraycopy(stretchAreas, 0, this.stretchAreas, 0, stretchAreas.length);
+        this.regionSize = regionSize;
+        this.scale = scale;
+        this.drawSize = drawSize;
+        this.crushMode = crushMode;
+        this.coord1 = coord1;
+        this.coord2 = coord2;
+        this.inset = inset;
+        this.normalize = normalize;
+        generation++;
+        ensureCapacity(count + 1);
+        this.count = count;
+        edgesValid = false;
+        mergedValid = false;
+        tilesValid = false;
+    }
+    
+    /**
+     * Copies the layout of the other axis and the values it was laid out with.
+     */
+    void set(TenPatchAxis other) {
+        restore(other.stretchAreas, other.regionSize, other.scale, other.drawSize, other.crushMode, other.coord1,
+                other.coord2, other.inset, other.normalize, other.count);
+        System.arraycopy(other.position, 0, position, 0, count);
+        System.arraycopy(other.size, 0, size, 0, count);
+        System.arraycopy(other.texStart, 0, texStart, 0, count);
+        System.arraycopy(other.texEnd, 0, texEnd, 0, count);
+        System.arraycopy(other.coordStart, 0, coordStart, 0, count);
+        System.arraycopy(other.coordEnd, 0, coordEnd, 0, count);
+        System.arraycopy(other.stretch, 0, stretch, 0, count);
+        totalStretch = other.totalStretch;
+        extra = other.extra;
+    }
+    
+    /**
+     * Returns true if this axis was last laid out with the specified values.
+     */
+    boolean matches(int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+        return drawSize == this.drawSize && scale == this.scale && regionSize == this.regionSize && crushMode == this.crushMode
+                && coord1 == this.coord1 && coord2 == this.coord2 && inset == this.inset && normalize == this.normalize
+                && Arrays.equals(stretchAreas, this.stretchAreas);
+    }
+    
+    /**
+     * Returns true if no span is drawn outside of 0 and the draw size. Spans are drawn outside when the axis is drawn
+     * below its minimum size with CrushMode.NONE.
+     */
+    boolean isWithinDrawSize() {
+        for (int i = 0; i < count; i++) {
+            if (size[i] > 0 && (position[i] < -BOUNDS_TOLERANCE || position[i] + size[i] > drawSize + BOUNDS_TOLERANCE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the drawn size of each stretch area divided by its size in the region.
+     */
+    float getStretchFactor() {
+        return totalStretch > 0 ? Math.max(1 + extra / totalStretch, 0) : 0;
+    }
+    
+    /**
+     * Calculates the spans of this axis.
+     * @param stretchAreas The stretch areas of this axis in pairs.
+     * @param regionSize The width or height of the region in texels.
+     * @param scale The scale of the TenPatch in this axis.
+     * @param drawSize The width or height the TenPatch is drawn at.
+     * @param crushMode
+     * @param coord1 The texture coordinate of the left or bottom of the region.
+     * @param coord2 The texture coordinate of the right or top of the region.
+     * @param inset The amount the texture coordinates of the stretch areas are moved inward to prevent bleeding from
+     *              linear filtering. 0 if not filtered.
+     * @param normalize Whether stretch areas that touch or overlap are merged and empty stretch areas are removed.
+     *                  Only valid if not tiling, because each stretch area is tiled separately.
+     * @see TenPatchDrawable.CrushMode
+     */
+    void layout(int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+        if (normalize) stretchAreas = normalize(stretchAreas);
+        generation++;
+        int length = stretchAreas.length;
+        ensureCapacity(length + 1);
+        count = 0;
+        edgesValid = false;
+        mergedValid = false;
+        tilesValid = false;
+        
+        float w = regionSize * scale;
+        totalStretch = 0f;
+        for (int i = 0; i < length; i += 2) {
+            totalStretch += stretchAreas[i + 1] - stretchAreas[i] + 1;
+        }
+        totalStretch *= scale;
+        extra = MathUtils.floor(drawSize) - w;
+        boolean crushed = drawSize <= w - totalStretch && crushMode != TenPatchDrawable.CrushMode.NONE;
+        if (coord2 < coord1) inset = -inset;
+        //untiled stretch areas drawn 1:1 cannot bleed, so their coordinates can meet their neighbors
+        if (normalize && extra == 0) inset = 0;
+        
+        //each crush mode has its own loop so the spans are calculated without branching on the mode
+        if (!crushed) {
+            layoutNatural(stretchAreas, scale, w, coord1, coord2, inset);
+        } else if (crushMode == TenPatchDrawable.CrushMode.CROP) {
+            layoutCropped(stretchAreas, scale, w, drawSize, coord1, coord2, inset);
+        } else if (crushMode == TenPatchDrawable.CrushMode.CROP_REVERSED) {
+            layoutCroppedReversed(stretchAreas, scale, w, drawSize, coord1, coord2, inset);
+        } else {
+            layoutShrunk(stretchAreas, scale, w, drawSize, coord1, coord2, inset);
+        }
+    }
+    
+    /**
+     * Lays out the spans when the non-stretching spans are drawn at their natural size.
+     */
+    private void layoutNatural(int[] stretchAreas, float scale, float w, float coord1, float coord2, float inset) {
+        int length = stretchAreas.length;
+        float range = coord2 - coord1;
+        float origin = 0;
+        float tex1 = 0;
+        for (int index = 0; index <= length; index += 2) {
+            float tex2 = index < length ? stretchAreas[index] * scale : w;
+            float drawn = Math.max(tex2 - tex1, 0);
+            add(origin, drawn, tex1, tex2, coord1 + range * tex1 / w, coord1 + range * tex2 / w, false);
+            origin += drawn;
+            
+            if (index + 1 < length) {
+                tex1 = tex2;
+                tex2 = (stretchAreas[index + 1] + 1) * scale;
+                origin += addStretchSpan(origin, tex1, tex2, w, coord1, range, inset);
+            }
+            tex1 = tex2;
+        }
+    }
+    
+    /**
+     * Lays out the spans when the non-stretching spans are shrunk proportionally to fit the draw size.
+     */
+    private void layoutShrunk(int[] stretchAreas, float scale, float w, float drawSize, float coord1, float coord2, float inset) {
+        int length = stretchAreas.length;
+        float range = coord2 - coord1;
+        float fixed = w - totalStretch;
+        float origin = 0;
+        float tex1 = 0;
+        for (int index = 0; index <= length; index += 2) {
+            float tex2 = index < length ? stretchAreas[index] * scale : w;
+            float drawn = Math.max((tex2 - tex1) * drawSize / fixed, 0);
+            add(origin, drawn, tex1, tex2, coord1 + range * tex1 / w, coord1 + range * tex2 / w, false);
+            origin += drawn;
+            
+            if (index + 1 < length) {
+                tex1 = tex2;
+                tex2 = (stretchAreas[index + 1] + 1) * scale;
+                origin += addStretchSpan(origin, tex1, tex2, w, coord1, range, inset);
+            }
+            tex1 = tex2;
+        }
+    }
+    
+    /**
+     * Lays out the spans when the non-stretching spans are cropped from the end to fit the draw size.
+     */
+    private void layoutCropped(int[] stretchAreas, float scale, float w, float drawSize, float coord1, float coord2, float inset) {
+        int length = stretchAreas.length;
+        float range = coord2 - coord1;
+        float cropAccumulator = 0;
+        float origin = 0;
+        float tex1 = 0;
+        for (int index = 0; index <= length; index += 2) {
+            float tex2 = index < length ? stretchAreas[index] * scale : w;
+            float drawn = Math.min(tex2 - tex1, drawSize - cropAccumulator);
+            cropAccumulator += drawn;
+            drawn = Math.max(drawn, 0);
+            float end = Math.min(tex1 + drawn, tex2);
+            add(origin, drawn, tex1, tex2, coord1 + range * tex1 / w, coord1 + range * end / w, false);
+            origin += drawn;
+            
+            if (index + 1 < length) {
+                tex1 = tex2;
+                tex2 = (stretchAreas[index + 1] + 1) * scale;
+                origin += addStretchSpan(origin, tex1, tex2, w, coord1, range, inset);
+            }
+            tex1 = tex2;
+        }
+    }
+    
+    /**
+     * Lays out the spans when the non-stretching spans are cropped from the start to fit the draw size.
+     */
+    private void layoutCroppedReversed(int[] stretchAreas, float scale, float w, float drawSize, float coord1, float coord2, float inset) {
+        int length = stretchAreas.length;
+        float range = coord2 - coord1;
+        float cropAccumulator = 0;
+        float origin = 0;
+        float tex1 = 0;
+        for (int index = 0; index <= length; index += 2) {
+            float tex2 = index < length ? stretchAreas[index] * scale : w;
+            float toMakeUp = w - totalStretch - drawSize - cropAccumulator;
+            float drawn = Math.max(MathUtils.clamp(tex2 - tex1 - toMakeUp, 0, tex2 - tex1), 0);
+            cropAccumulator += MathUtils.clamp(toMakeUp, 0, tex2 - tex1);
+            float start = Math.max(tex2 - drawn, tex1);
+            add(origin, drawn, tex1, tex2, coord1 + range * start / w, coord1 + range * tex2 / w, false);
+            origin += drawn;
+            
+            if (index + 1 < length) {
+                tex1 = tex2;
+                tex2 = (stretchAreas[index + 1] + 1) * scale;
+                origin += addStretchSpan(origin, tex1, tex2, w, coord1, range, inset);
+            }
+            tex1 = tex2;
+        }
+    }
+    
+    /**
+     * Adds a stretching span that receives its share of the extra space.
+     * @return The drawn size of the span.
+     */
+    private float addStretchSpan(float origin, float tex1, float tex2, float w, float coord1, float range, float inset) {
+        float drawn = Math.max(tex2 - tex1 + extra * (tex2 - tex1) / totalStretch, 0);
+        add(origin, drawn, tex1, tex2, coord1 + range * tex1 / w + inset, coord1 + range * tex2 / w - inset, true);
+        return drawn;
+    }
+    
+    /**
+     * Calculates the tile pieces of every span if they are not up to date. A
+     * stretching span is divided into repeating tiles shifted by the offset,
+     * including partial tiles at either end. A non-stretching span keeps its
+     * size so it can be combined with the tiles of the other axis. Because the
+     * pieces only depend on this axis, scrolling the offset of one axis does
+     * not recalculate the tiles of the other.
+     * @param offset The tile offset in this axis.
+     * @param tileScale The factor the tiles are enlarged by.
+     * @param mirror Whether every other tile of a stretching span is mirrored.
+     */
+    void updateTiles(float offset, float tileScale, boolean mirror) {
+        if (tilesValid && offset == tileOffset && tileScale == this.tileScale && mirror == tileMirror) return;
+        tilesValid = true;
+        tileOffset = offset;
+        this.tileScale = tileScale;
+        tileMirror = mirror;
+        pieceCount = 0;
+        
+        for (int i = 0; i < count; i++) {
+            firstPiece[i] = pieceCount;
+            float drawn = size[i];
+            float start = coordStart[i];
+            float end = coordEnd[i];
+            boolean ascending = end >= start;
+            float tile = stretch[i] ? (texEnd[i] - texStart[i]) * tileScale : texEnd[i] - texStart[i];
+            if (!(tile > 0)) continue;
+            if (mirror && stretch[i]) {
+                addMirroredTiles(position[i], drawn, start, end, tile, offset);
+                continue;
+            }
+            
+            float adjusted = 0;
+            if (stretch[i]) {
+                adjusted = offset % tile;
+                if (adjusted < 0) adjusted = tile + adjusted;
+                
+                //partial tile as a result of the offset
+                if (adjusted > 0) {
+                    addPiece(position[i], Math.min(adjusted, drawn), end - (end - start) * adjusted / tile,
+                            limit(end - (end - start) * (adjusted - drawn) / tile, end, ascending));
+                }
+            }
+            
+            //repeating tiles
+            for (float j = adjusted; j < drawn; j += tile) {
+                addPiece(position[i] + j, Math.min(tile, drawn - j), start,
+                        stretch[i] ? limit(start + (end - start) * (drawn - j) / tile, end, ascending) : end);
+            }
+        }
+        firstPiece[count] = pieceCount;
+    }
+    
+    /**
+     * Returns the most tile pieces updateTiles() produces for the tile scale without producing them.
+     * @see TenPatchAxis#updateTiles(float, float, boolean)
+     */
+    int countPieces(float tileScale) {
+        long pieces = 0;
+        for (int i = 0; i < count; i++) {
+            float tile = stretch[i] ? (texEnd[i] - texStart[i]) * tileScale : texEnd[i] - texStart[i];
+            if (!(tile > 0) || !(size[i] > 0)) continue;
+            pieces += (long) Math.ceil(size[i] / tile);
+            
+            //a stretching span may start and end with a partial tile because of the offset
+            if (stretch[i]) pieces++;
+        }
+        return (int) Math.min(pieces, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Divides a stretching span into tiles that alternate between the texture coordinates of the span and their mirror
+     * image. The pattern repeats every two tiles, so the offset shifts it by its remainder of two tiles.
+     */
+    private void addMirroredTiles(float origin, float drawn, float start, float end, float tile, float offset) {
+        float adjusted = offset % (tile * 2);
+        if (adjusted < 0) adjusted = tile * 2 + adjusted;
+        
+        //the tile at the adjusted offset is not mirrored, the two before it are partially visible at most
+        boolean mirrored = false;
+        for (float j = adjusted - tile * 2; j < drawn; j += tile) {
+            float pieceStart = Math.max(j, 0);
+            float pieceEnd = Math.min(j + tile, drawn);
+            if (pieceEnd > pieceStart) {
+                float fraction1 = (pieceStart - j) / tile;
+                float fraction2 = (pieceEnd - j) / tile;
+                if (mirrored) {
+                    fraction1 = 1 - fraction1;
+                    fraction2 = 1 - fraction2;
+                }
+                addPiece(origin + pieceStart, pieceEnd - pieceStart, start + (end - start) * fraction1,
+                        start + (end - start) * fraction2);
+            }
+            mirrored = !mirrored;
+        }
+    }
+    
+    /**
+     * Returns the texture coordinate drawn at a position along this axis. The span and tile piece are found with a
+     * binary search.
+     * @param position The position from the origin of the drawable.
+     * @param tiled Whether stretching spans are drawn as tiles. The tile pieces must be up to date.
+     * @return NaN if nothing is drawn at the position.
+     */
+    float getCoord(float position, boolean tiled) {
+        int span = search(this.position, 0, count, position);
+        if (span < 0 || position >= this.position[span] + size[span]) return Float.NaN;
+        if (tiled && stretch[span]) {
+            int piece = search(piecePosition, firstPiece[span], firstPiece[span + 1], position);
+            if (piece < 0 || position >= piecePosition[piece] + pieceSize[piece]) return Float.NaN;
+            return pieceCoordStart[piece] + (pieceCoordEnd[piece] - pieceCoordStart[piece]) * (position - piecePosition[piece]) / pieceSize[piece];
+        }
+        return coordStart[span] + (coordEnd[span] - coordStart[span]) * (position - this.position[span]) / size[span];
+    }
+    
+    /**
+     * Returns the last index in the range whose value is less than or equal to the key, or -1 if there is none. The
+     * values must be in ascending order.
+     */
+    private static int search(float[] values, int start, int end, float key) {
+        int low = start;
+        int high = end - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= key) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Prevents a texture coordinate from passing the end of a span.
+     */
+    private static float limit(float coord, float end, boolean ascending) {
+        return ascending ? Math.min(end, coord) : Math.max(end, coord);
+    }
+    
+    private void addPiece(float position, float size, float coordStart, float coordEnd) {
+        if (pieceCount == piecePosition.length) {
+            int capacity = pieceCount * 2;
+            float[] newPosition = new float[capacity];
+            float[] newSize = new float[capacity];
+            float[] newCoordStart = new float[capacity];
+            float[] newCoordEnd = new float[capacity];
+            System.arraycopy(piecePosition, 0, newPosition, 0, pieceCount);
+            System.arraycopy(pieceSize, 0, newSize, 0, pieceCount);
+            System.arraycopy(pieceCoordStart, 0, newCoordStart, 0, pieceCount);
+            System.arraycopy(pieceCoordEnd, 0, newCoordEnd, 0, pieceCount);
+            piecePosition = newPosition;
+            pieceSize = newSize;
+            pieceCoordStart = newCoordStart;
+            pieceCoordEnd = newCoordEnd;
+        }
+        piecePosition[pieceCount] = position;
+        pieceSize[pieceCount] = size;
+        pieceCoordStart[pieceCount] = coordStart;
+        pieceCoordEnd[pieceCount] = coordEnd;
+        pieceCount++;
+    }
+    
+    /**
+     * Returns the stretch areas with touching and overlapping areas merged and areas that end before they start
+     * removed. Stretch areas such as 0,5 and 6,10 stretch exactly like 0,10 when not tiling, but would add a span.
+     */
+    private int[] normalize(int[] stretchAreas) {
+        if (normalizeScratch.length < stretchAreas.length) normalizeScratch = new int[stretchAreas.length];
+        int[] areas = normalizeScratch;
+        int length = 0;
+        for (int i = 0; i + 1 < stretchAreas.length; i += 2) {
+            int start = stretchAreas[i];
+            int end = stretchAreas[i + 1];
+            if (end < start) continue;
+            if (length > 0 && start >= areas[length - 2] && start <= areas[length - 1] + 1) {
+                areas[length - 1] = Math.max(areas[length - 1], end);
+            } else {
+                areas[length++] = start;
+                areas[length++] = end;
+            }
+        }
+        if (length == stretchAreas.length) return stretchAreas;
+        if (normalizedAreas.length != length) normalizedAreas = new int[length];
+        System.arraycopy(areas, 0, normalizedAreas, 0, length);
+        return normalizedAreas;
+    }
+    
+    /**
+     * Calculates the merged spans if they are not up to date.
+     */
+    void computeMerged() {
+        if (mergedValid) return;
+        mergedValid = true;
+        mergedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (size[i] <= 0) continue;
+            if (mergedCount > 0) {
+                int last = mergedCount - 1;
+                if (mergedCoordEnd[last] == coordStart[i]) {
+                    //the seam must stay where it is if the coordinates are interpolated across both spans
+                    float mergedSize = this.mergedSize[last] + size[i];
+                    float coordRange = coordEnd[i] - mergedCoordStart[last];
+                    float seam = coordRange == 0 ? this.mergedSize[last] : mergedSize * (mergedCoordEnd[last] - mergedCoordStart[last]) / coordRange;
+                    if (Math.abs(seam - this.mergedSize[last]) <= MERGE_TOLERANCE) {
+                        this.mergedSize[last] = mergedSize;
+                        mergedCoordEnd[last] = coordEnd[i];
+                        continue;
+                    }
+                }
+            }
+            mergedPosition[mergedCount] = position[i];
+            mergedSize[mergedCount] = size[i];
+            mergedCoordStart[mergedCount] = coordStart[i];
+            mergedCoordEnd[mergedCount] = coordEnd[i];
+            mergedCount++;
+        }
+    }
+    
+    /**
+     * Calculates the distinct edges of the spans if they are not up to date.
+     */
+    void computeEdges() {
+        computeEdges(Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Calculates the distinct edges of the spans trimmed to the part whose texture coordinates are between min and max
+     * if they are not up to date. Used to leave out the margins stripped from an atlas region.
+     */
+    void computeEdges(float min, float max) {
+        if (edgesValid && min == edgeTrimMin && max == edgeTrimMax) return;
+        edgesValid = true;
+        edgeTrimMin = min;
+        edgeTrimMax = max;
+        edgeCount = 0;
+        for (int i = 0; i < count; i++) {
+            float start = position[i];
+            float end = start + size[i];
+            float coord1 = coordStart[i];
+            float coord2 = coordEnd[i];
+            float trimStart = TenPatchDrawable.getTrimStart(coord1, coord2, min, max);
+            float trimEnd = TenPatchDrawable.getTrimEnd(coord1, coord2, min, max);
+            if (trimEnd <= trimStart) {
+                firstEdge[i] = Math.max(edgeCount - 1, 0);
+                lastEdge[i] = firstEdge[i];
+                continue;
+            }
+            
+            //untrimmed ends keep their exact values, so the edges are still shared with the neighboring spans
+            if (trimStart > 0) {
+                start = position[i] + size[i] * trimStart;
+                coord1 = MathUtils.clamp(coordStart[i] + (coordEnd[i] - coordStart[i]) * trimStart, min, max);
+            }
+            if (trimEnd < 1) {
+                end = position[i] + size[i] * trimEnd;
+                coord2 = MathUtils.clamp(coordStart[i] + (coordEnd[i] - coordStart[i]) * trimEnd, min, max);
+            }
+            
+            if (edgeCount == 0 || edgePosition[edgeCount - 1] != start || edgeCoord[edgeCount - 1] != coord1) {
+                edgePosition[edgeCount] = start;
+                edgeCoord[edgeCount] = coord1;
+                edgeCount++;
+            }
+            firstEdge[i] = edgeCount - 1;
+            edgePosition[edgeCount] = end;
+            edgeCoord[edgeCount] = coord2;
+            lastEdge[i] = edgeCount;
+            edgeCount++;
+        }
+    }
+    
+    private void add(float position, float size, float texStart, float texEnd, float coordStart, float coordEnd, boolean stretch) {
+        this.position[count] = position;
+        this.size[count] = size;
+        this.texStart[count] = texStart;
+        this.texEnd[count] = texEnd;
+        this.coordStart[count] = coordStart;
+        this.coordEnd[count] = coordEnd;
+        this.stretch[count] = stretch;
+        count++;
+    }
+    
+    private void ensureCapacity(int spans) {
+        if (position.length >= spans) return;
+        position = new float[spans];
+        size = new float[spans];
+        texStart = new float[spans];
+        texEnd = new float[spans];
+        coordStart = new float[spans];
+        coordEnd = new float[spans];
+        stretch = new boolean[spans];
+        firstEdge = new int[spans];
+        lastEdge = new int[spans];
+        firstPiece = new int[spans + 1];
+        mergedPosition = new float[spans];
+        mergedSize = new float[spans];
+        mergedCoordStart = new float[spans];
+        mergedCoordEnd = new float[spans];
+        edgePosition = new float[spans * 2];
+        edgeCoord = new float[spans * 2];
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A small least recently used cache of the layouts of one axis. A single
+ * TenPatchDrawable is often shared by many widgets of different sizes, such as
+ * every button of a menu. Keeping several layouts prevents the drawable from
+ * laying out the axis again every time it is drawn at a different size.
+ * @author Raymond Buckley
+ * @see TenPatchDrawable#setLayoutCacheSize(int)
+ */
+class TenPatchAxisCache {
+    /**
+     * The cached axes ordered from most to least recently used.
+     */
+    private final Array<TenPatchAxis> axes = new Array<TenPatchAxis>();
+    /**
+     * Whether the last call to obtain() found a matching layout.
+     */
+    boolean hit;
+    /**
+     * Provides layouts that are not cached and records new layouts. Can be null.
+     */
+    Store store;
+    
+    /**
+     * A source of layouts calculated before, such as in an earlier run of the application.
+     * @see TenPatchLayoutStore
+     */
+    interface Store {
+        /**
+         * Copies the layout for the values into the axis.
+         * @return false if the store has no layout for the values.
+         */
+        boolean read(TenPatchAxis axis, int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize);
+        
+        /**
+         * Records the layout of an axis that was just laid out with the values.
+         */
+        void record(TenPatchAxis axis, int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize);
+    }
+    
+    /**
+     * Returns an axis laid out with the specified values. The least recently used axis is laid out again if no cached
+     * axis matches.
+     * @param capacity The maximum number of layouts kept. At least one layout is always kept.
+     * @see TenPatchAxis#layout(int[], float, float, float, int, float, float, float, boolean)
+     */
+    TenPatchAxis obtain(int capacity, int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+        for (int i = 0; i < axes.size; i++) {
+            TenPatchAxis axis = axes.get(i);
+            if (axis.matches(stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize)) {
+                if (i > 0) {
+                    axes.removeIndex(i);
+                    axes.insert(0, axis);
+                }
+                hit = true;
+                return axis;
+            }
+        }
+        
+        hit = false;
+        TenPatchAxis axis;
+        if (axes.size < capacity || axes.size == 0) {
+            axis = new TenPatchAxis();
+        } else {
+            axis = axes.pop();
+        }
+        while (axes.size >= capacity && axes.size > 0) {
+            axes.pop();
+        }
+        if (store == null || !store.read(axis, stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize)) {
+            axis.update(stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize);
+            if (store != null) store.record(axis, stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize);
+        }
+        axes.insert(0, axis);
+        return axis;
+    }
+}
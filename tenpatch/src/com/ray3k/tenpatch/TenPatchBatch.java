@@ -0,0 +1,816 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.NumberUtils;
+
+import java.nio.IntBuffer;
+
+/**
+ * A Batch that uploads 12 bytes per vertex instead of the 20 bytes of
+ * SpriteBatch. TenPatch heavy user interfaces submit many small quads and are
+ * often limited by bandwidth on low end devices. Each vertex stores its
+ * position as a 16-bit integer relative to an origin, its texture coordinates
+ * as normalized 16-bit integers, and a packed color. The origin is the first
+ * vertex after every flush. The batch flushes and moves the origin when a quad
+ * does not fit in the range of the current origin.
+ * 
+ * Positions are rounded to 1 / positionPrecision units. The range from the
+ * origin is about 16000 / positionPrecision units in every direction, so the
+ * default precision of 2 suits user interfaces measured in pixels. Texture
+ * coordinates must be between 0 and 1, so textures can not be repeated by
+ * wrapping.
+ * 
+ * Custom shaders must read the position from the y and w components and the
+ * texture coordinates from the x and z components of the attribute named
+ * TEX_POSITION_ATTRIBUTE as in createDefaultShader(). TenPatchDrawable writes
+ * its quads to a TenPatchBatch directly.
+ * 
+ * A TenPatchBatch created with maxTextures greater than 1 binds up to that
+ * many textures to separate texture units and adds the index of the unit to
+ * each vertex, which makes the vertices 16 bytes. Drawing with a different
+ * texture only flushes once all units are taken, so animations with frames on
+ * several atlas pages and drawables from different pages stay in one batch.
+ * The shader must choose the sampler from the array named u_textures with the
+ * attribute named TEXTURE_INDEX_ATTRIBUTE as in createDefaultShader(int).
+ * @author Raymond Buckley
+ * @see TenPatchBatch#createDefaultShader()
+ * @see TenPatchBatch#createDefaultShader(int)
+ */
+public class TenPatchBatch implements Batch {
+    /**
+     * The name of the attribute that holds the texture coordinates and the position of a vertex as (u, x, v, y).
+     */
+    public static final String TEX_POSITION_ATTRIBUTE = "a_texPosition";
+    /**
+     * The number of floats per vertex. Each float holds the bits of two 16-bit integers or a packed color.
+     */
+    public static final int VERTEX_SIZE = 3;
+    /**
+     * The name of the attribute that holds the index of the texture unit of a vertex when multiple textures are used.
+     */
+    public static final String TEXTURE_INDEX_ATTRIBUTE = "a_textureIndex";
+    /**
+     * The number of floats per vertex when multiple textures are used. The texture index follows the color.
+     */
+    public static final int MULTI_TEXTURE_VERTEX_SIZE = 4;
+    
+    /**
+     * Positions are stored between MIN_POSITION and MAX_POSITION and centered on POSITION_BIAS. This keeps the
+     * exponent of the float that holds the bits from being all zeros or all ones, so the bits are never a NaN or a
+     * denormal that could be changed while copied.
+     */
+    static final int MIN_POSITION = 0x0080;
+    static final int MAX_POSITION = 0x7F7F;
+    static final int POSITION_BIAS = 0x4000;
+    
+    private final Mesh mesh;
+    private final float[] vertices;
+    private int idx;
+    private Texture lastTexture;
+    private float invTexWidth, invTexHeight;
+    private final int vertexSize;
+    private final Texture[] textures;
+    private final String[] textureUniforms;
+    private int textureCount;
+    private float textureIndex;
+    private boolean drawing;
+    
+    private final float positionPrecision;
+    private float originX, originY;
+    
+    private final Matrix4 transformMatrix = new Matrix4();
+    private final Matrix4 projectionMatrix = new Matrix4();
+    private final Matrix4 combinedMatrix = new Matrix4();
+    
+    private boolean blendingDisabled;
+    private int blendSrcFunc = GL20.GL_SRC_ALPHA;
+    private int blendDstFunc = GL20.GL_ONE_MINUS_SRC_ALPHA;
+    private int blendSrcFuncAlpha = GL20.GL_SRC_ALPHA;
+    private int blendDstFuncAlpha = GL20.GL_ONE_MINUS_SRC_ALPHA;
+    
+    private final ShaderProgram shader;
+    private ShaderProgram customShader;
+    private boolean ownsShader;
+    
+    private final Color color = new Color(1, 1, 1, 1);
+    private float colorPacked = Color.WHITE_FLOAT_BITS;
+    
+    /**
+     * Number of render calls since the last begin().
+     */
+    public int renderCalls;
+    
+    /**
+     * Creates a TenPatchBatch with a size of 1000, a position precision of 2, and the default shader.
+     */
+    public TenPatchBatch() {
+        this(1000, 2, null);
+    }
+    
+    /**
+     * Creates a TenPatchBatch with a position precision of 2 and the default shader.
+     * @param size The maximum number of quads in a single batch. Max of 8191.
+     */
+    public TenPatchBatch(int size) {
+        this(size, 2, null);
+    }
+    
+    /**
+     * @param size The maximum number of quads in a single batch. Max of 8191.
+     * @param positionPrecision The number of steps per unit that positions are rounded to.
+     * @param defaultShader The default shader to use. This is not owned by the TenPatchBatch and must be disposed
+     *                      separately. If null, the shader from createDefaultShader() is used.
+     */
+    public TenPatchBatch(int size, float positionPrecision, ShaderProgram defaultShader) {
+        this(size, positionPrecision, 1, defaultShader);
+    }
+    
+    /**
+     * @param size The maximum number of quads in a single batch. Max of 8191.
+     * @param positionPrecision The number of steps per unit that positions are rounded to.
+     * @param maxTextures The maximum number of textures drawn in a single batch. Limited to the number of texture
+     *                    units of the device.
+     * @param defaultShader The default shader to use. This is not owned by the TenPatchBatch and must be disposed
+     *                      separately. If null, the shader from createDefaultShader(int) is used.
+     */
+    public TenPatchBatch(int size, float positionPrecision, int maxTextures, ShaderProgram defaultShader) {
+        //32767 is the max vertex index, so 32767 / 4 vertices per quad = 8191 quads max
+        if (size > 8191) throw new IllegalArgumentException("Can't have more than 8191 quads per batch: " + size);
+        this.positionPrecision = positionPrecision;
+        
+        if (maxTextures > 1) {
+            IntBuffer units = BufferUtils.newIntBuffer(16);
+            Gdx.gl.glGetIntegerv(GL20.GL_MAX_TEXTURE_IMAGE_UNITS, units);
+            maxTextures = Math.min(maxTextures, units.get(0));
+        }
+        maxTextures = Math.max(1, maxTextures);
+        textures = new Texture[maxTextures];
+        textureUniforms = new String[maxTextures];
+        for (int i = 0; i < maxTextures; i++) {
+            textureUniforms[i] = "u_textures[" + i + "]";
+        }
+        vertexSize = maxTextures > 1 ? MULTI_TEXTURE_VERTEX_SIZE : VERTEX_SIZE;
+        
+        Mesh.VertexDataType vertexDataType = Gdx.gl30 != null ? Mesh.VertexDataType.VertexBufferObjectWithVAO : Mesh.VertexDataType.VertexArray;
+        if (maxTextures > 1) {
+            mesh = new Mesh(vertexDataType, false, size * 4, size * 6,
+                    new VertexAttribute(Usage.Generic, 4, GL20.GL_UNSIGNED_SHORT, false, TEX_POSITION_ATTRIBUTE),
+                    new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE),
+                    new VertexAttribute(Usage.Generic, 1, GL20.GL_FLOAT, false, TEXTURE_INDEX_ATTRIBUTE));
+        } else {
+            mesh = new Mesh(vertexDataType, false, size * 4, size * 6,
+                    new VertexAttribute(Usage.Generic, 4, GL20.GL_UNSIGNED_SHORT, false, TEX_POSITION_ATTRIBUTE),
+                    new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE));
+        }
+        
+        projectionMatrix.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        
+        vertices = new float[size * 4 * vertexSize];
+        
+        int length = size * 6;
+        short[] indices = new short[length];
+        short j = 0;
+        for (int i = 0; i < length; i += 6, j += 4) {
+            indices[i] = j;
+            indices[i + 1] = (short) (j + 1);
+            indices[i + 2] = (short) (j + 2);
+            indices[i + 3] = (short) (j + 2);
+            indices[i + 4] = (short) (j + 3);
+            indices[i + 5] = j;
+        }
+        mesh.setIndices(indices);
+        
+        if (defaultShader == null) {
+            shader = createDefaultShader(maxTextures);
+            ownsShader = true;
+        } else {
+            shader = defaultShader;
+        }
+    }
+    
+    /**
+     * Returns a new instance of the default shader. It decodes the compact vertices and otherwise matches the default
+     * shader of SpriteBatch.
+     */
+    public static ShaderProgram createDefaultShader() {
+        String vertexShader = "attribute vec4 " + TEX_POSITION_ATTRIBUTE + ";\n"
+                + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+                + "uniform mat4 u_projTrans;\n"
+                + "varying vec4 v_color;\n"
+                + "varying vec2 v_texCoords;\n"
+                + "\n"
+                + "void main()\n"
+                + "{\n"
+                + "   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+                + "   v_color.a = v_color.a * (255.0/254.0);\n"
+                + "   v_texCoords = " + TEX_POSITION_ATTRIBUTE + ".xz * (1.0/65535.0);\n"
+                + "   gl_Position =  u_projTrans * vec4(" + TEX_POSITION_ATTRIBUTE + ".yw, 0.0, 1.0);\n"
+                + "}\n";
+        String fragmentShader = "#ifdef GL_ES\n"
+                + "#define LOWP lowp\n"
+                + "precision mediump float;\n"
+                + "#else\n"
+                + "#define LOWP \n"
+                + "#endif\n"
+                + "varying LOWP vec4 v_color;\n"
+                + "varying vec2 v_texCoords;\n"
+                + "uniform sampler2D u_texture;\n"
+                + "void main()\n"
+                + "{\n"
+                + "  gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n"
+                + "}";
+        
+        ShaderProgram shader = new ShaderProgram(vertexShader, fragmentShader);
+        if (!shader.isCompiled()) throw new IllegalArgumentException("Error compiling shader: " + shader.getLog());
+        return shader;
+    }
+    
+    /**
+     * Returns a new instance of the default shader for the number of textures. With more than one texture, the
+     * fragment shader samples the texture unit given by the texture index of each vertex. GLSL ES 1.0 can not index a
+     * sampler array with a varying, so the unit is chosen by comparing the index with each unit in turn.
+     * @param maxTextures
+     * @return
+     */
+    public static ShaderProgram createDefaultShader(int maxTextures) {
+        if (maxTextures <= 1) return createDefaultShader();
+        
+        String vertexShader = "attribute vec4 " + TEX_POSITION_ATTRIBUTE + ";\n"
+                + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+                + "attribute float " + TEXTURE_INDEX_ATTRIBUTE + ";\n"
+                + "uniform mat4 u_projTrans;\n"
+                + "varying vec4 v_color;\n"
+                + "varying vec2 v_texCoords;\n"
+                + "varying float v_textureIndex;\n"
+                + "\n"
+                + "void main()\n"
+                + "{\n"
+                + "   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+                + "   v_color.a = v_color.a * (255.0/254.0);\n"
+                + "   v_texCoords = " + TEX_POSITION_ATTRIBUTE + ".xz * (1.0/65535.0);\n"
+                + "   v_textureIndex = " + TEXTURE_INDEX_ATTRIBUTE + ";\n"
+                + "   gl_Position =  u_projTrans * vec4(" + TEX_POSITION_ATTRIBUTE + ".yw, 0.0, 1.0);\n"
+                + "}\n";
+        StringBuilder fragmentShader = new StringBuilder();
+        fragmentShader.append("#ifdef GL_ES\n")
+                .append("#define LOWP lowp\n")
+                .append("precision mediump float;\n")
+                .append("#else\n")
+                .append("#define LOWP \n")
+                .append("#endif\n")
+                .append("varying LOWP vec4 v_color;\n")
+                .append("varying vec2 v_texCoords;\n")
+                .append("varying float v_textureIndex;\n")
+                .append("uniform sampler2D u_textures[").append(maxTextures).append("];\n")
+                .append("void main()\n")
+                .append("{\n")
+                .append("  vec4 texel;\n");
+        for (int i = 0; i < maxTextures - 1; i++) {
+            fragmentShader.append(i == 0 ? "  if" : "  else if").append(" (v_textureIndex < ").append(i).append(".5) texel = texture2D(u_textures[")
+                    .append(i).append("], v_texCoords);\n");
+        }
+        fragmentShader.append("  else texel = texture2D(u_textures[").append(maxTextures - 1).append("], v_texCoords);\n")
+                .append("  gl_FragColor = v_color * texel;\n")
+                .append("}");
+        
+        ShaderProgram shader = new ShaderProgram(vertexShader, fragmentShader.toString());
+        if (!shader.isCompiled()) throw new IllegalArgumentException("Error compiling shader: " + shader.getLog());
+        return shader;
+    }
+    
+    @Override
+    public void begin() {
+        if (drawing) throw new IllegalStateException("TenPatchBatch.end must be called before begin.");
+        renderCalls = 0;
+        
+        Gdx.gl.glDepthMask(false);
+        getShader().begin();
+        setTextureUniforms();
+        
+        drawing = true;
+    }
+    
+    @Override
+    public void end() {
+        if (!drawing) throw new IllegalStateException("TenPatchBatch.begin must be called before end.");
+        if (idx > 0) flush();
+        lastTexture = null;
+        textureCount = 0;
+        drawing = false;
+        
+        GL20 gl = Gdx.gl;
+        gl.glDepthMask(true);
+        if (isBlendingEnabled()) gl.glDisable(GL20.GL_BLEND);
+        
+        getShader().end();
+    }
+    
+    @Override
+    public void setColor(Color tint) {
+        color.set(tint);
+        colorPacked = tint.toFloatBits();
+    }
+    
+    @Override
+    public void setColor(float r, float g, float b, float a) {
+        color.set(r, g, b, a);
+        colorPacked = color.toFloatBits();
+    }
+    
+    @Override
+    public Color getColor() {
+        return color;
+    }
+    
+    @Override
+    public void setPackedColor(float packedColor) {
+        Color.abgr8888ToColor(color, packedColor);
+        colorPacked = packedColor;
+    }
+    
+    @Override
+    public float getPackedColor() {
+        return colorPacked;
+    }
+    
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height,
+                     float scaleX, float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight,
+                     boolean flipX, boolean flipY) {
+        switchTexture(texture);
+        float u = srcX * invTexWidth;
+        float v = (srcY + srcHeight) * invTexHeight;
+        float u2 = (srcX + srcWidth) * invTexWidth;
+        float v2 = srcY * invTexHeight;
+        if (flipX) {
+            float temp = u;
+            u = u2;
+            u2 = temp;
+        }
+        if (flipY) {
+            float temp = v;
+            v = v2;
+            v2 = temp;
+        }
+        drawRotated(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation, u, v, u, v2, u2, v2, u2, v);
+    }
+    
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth,
+                     int srcHeight, boolean flipX, boolean flipY) {
+        switchTexture(texture);
+        float u = srcX * invTexWidth;
+        float v = (srcY + srcHeight) * invTexHeight;
+        float u2 = (srcX + srcWidth) * invTexWidth;
+        float v2 = srcY * invTexHeight;
+        if (flipX) {
+            float temp = u;
+            u = u2;
+            u2 = temp;
+        }
+        if (flipY) {
+            float temp = v;
+            v = v2;
+            v2 = temp;
+        }
+        drawRectangle(texture, x, y, x + width, y + height, u, v, u2, v2, colorPacked);
+    }
+    
+    @Override
+    public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+        switchTexture(texture);
+        drawRectangle(texture, x, y, x + srcWidth, y + srcHeight, srcX * invTexWidth, (srcY + srcHeight) * invTexHeight,
+                (srcX + srcWidth) * invTexWidth, srcY * invTexHeight, colorPacked);
+    }
+    
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+        drawRectangle(texture, x, y, x + width, y + height, u, v, u2, v2, colorPacked);
+    }
+    
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.getWidth(), texture.getHeight());
+    }
+    
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        drawRectangle(texture, x, y, x + width, y + height, 0, 1, 1, 0, colorPacked);
+    }
+    
+    /**
+     * Draws quads given in the vertex format of SpriteBatch.
+     * @param spriteVertices Groups of 4 vertices of x, y, packed color, u, v.
+     */
+    @Override
+    public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+        for (int i = offset, n = offset + count - 19; i < n; i += 20) {
+            drawQuad(texture, spriteVertices[i], spriteVertices[i + 1], spriteVertices[i + 2], spriteVertices[i + 3], spriteVertices[i + 4],
+                    spriteVertices[i + 5], spriteVertices[i + 6], spriteVertices[i + 7], spriteVertices[i + 8], spriteVertices[i + 9],
+                    spriteVertices[i + 10], spriteVertices[i + 11], spriteVertices[i + 12], spriteVertices[i + 13], spriteVertices[i + 14],
+                    spriteVertices[i + 15], spriteVertices[i + 16], spriteVertices[i + 17], spriteVertices[i + 18], spriteVertices[i + 19]);
+        }
+    }
+    
+    @Override
+    public void draw(TextureRegion region, float x, float y) {
+        draw(region, x, y, region.getRegionWidth(), region.getRegionHeight());
+    }
+    
+    @Override
+    public void draw(TextureRegion region, float x, float y, float width, float height) {
+        drawRectangle(region.getTexture(), x, y, x + width, y + height, region.getU(), region.getV2(), region.getU2(), region.getV(), colorPacked);
+    }
+    
+    @Override
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+                     float scaleX, float scaleY, float rotation) {
+        drawRotated(region.getTexture(), x, y, originX, originY, width, height, scaleX, scaleY, rotation,
+                region.getU(), region.getV2(), region.getU(), region.getV(), region.getU2(), region.getV(), region.getU2(), region.getV2());
+    }
+    
+    @Override
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+                     float scaleX, float scaleY, float rotation, boolean clockwise) {
+        if (clockwise) {
+            drawRotated(region.getTexture(), x, y, originX, originY, width, height, scaleX, scaleY, rotation,
+                    region.getU2(), region.getV2(), region.getU(), region.getV2(), region.getU(), region.getV(), region.getU2(), region.getV());
+        } else {
+            drawRotated(region.getTexture(), x, y, originX, originY, width, height, scaleX, scaleY, rotation,
+                    region.getU(), region.getV(), region.getU2(), region.getV(), region.getU2(), region.getV2(), region.getU(), region.getV2());
+        }
+    }
+    
+    @Override
+    public void draw(TextureRegion region, float width, float height, Affine2 transform) {
+        float x1 = transform.m02;
+        float y1 = transform.m12;
+        float x2 = transform.m01 * height + transform.m02;
+        float y2 = transform.m11 * height + transform.m12;
+        float x3 = transform.m00 * width + transform.m01 * height + transform.m02;
+        float y3 = transform.m10 * width + transform.m11 * height + transform.m12;
+        float x4 = transform.m00 * width + transform.m02;
+        float y4 = transform.m10 * width + transform.m12;
+        float color = colorPacked;
+        drawQuad(region.getTexture(), x1, y1, color, region.getU(), region.getV2(), x2, y2, color, region.getU(), region.getV(),
+                x3, y3, color, region.getU2(), region.getV(), x4, y4, color, region.getU2(), region.getV2());
+    }
+    
+    /**
+     * Draws an axis aligned rectangle in a single color. TenPatchDrawable uses this to write its cells without
+     * packing them into SpriteBatch vertices first.
+     * @param texture
+     * @param x The left edge.
+     * @param y The bottom edge.
+     * @param x2 The right edge.
+     * @param y2 The top edge.
+     * @param u The texture coordinate at the left edge.
+     * @param v The texture coordinate at the bottom edge.
+     * @param u2 The texture coordinate at the right edge.
+     * @param v2 The texture coordinate at the top edge.
+     * @param packedColor The color as returned by Color.toFloatBits().
+     */
+    public void drawRectangle(Texture texture, float x, float y, float x2, float y2, float u, float v, float u2, float v2, float packedColor) {
+        drawQuad(texture, x, y, packedColor, u, v, x, y2, packedColor, u, v2, x2, y2, packedColor, u2, v2, x2, y, packedColor, u2, v);
+    }
+    
+    private void drawRotated(Texture texture, float x, float y, float originX, float originY, float width, float height,
+                             float scaleX, float scaleY, float rotation, float u1, float v1, float u2, float v2,
+                             float u3, float v3, float u4, float v4) {
+        //bottom left and top right corner points relative to origin
+        float worldOriginX = x + originX;
+        float worldOriginY = y + originY;
+        float fx = -originX * scaleX;
+        float fy = -originY * scaleY;
+        float fx2 = (width - originX) * scaleX;
+        float fy2 = (height - originY) * scaleY;
+        
+        float x1 = fx, y1 = fy;
+        float x2 = fx, y2 = fy2;
+        float x3 = fx2, y3 = fy2;
+        float x4 = fx2, y4 = fy;
+        if (rotation != 0) {
+            float cos = MathUtils.cosDeg(rotation);
+            float sin = MathUtils.sinDeg(rotation);
+            x1 = cos * fx - sin * fy;
+            y1 = sin * fx + cos * fy;
+            x2 = cos * fx - sin * fy2;
+            y2 = sin * fx + cos * fy2;
+            x3 = cos * fx2 - sin * fy2;
+            y3 = sin * fx2 + cos * fy2;
+            x4 = x1 + (x3 - x2);
+            y4 = y3 - (y2 - y1);
+        }
+        
+        float color = colorPacked;
+        drawQuad(texture, x1 + worldOriginX, y1 + worldOriginY, color, u1, v1, x2 + worldOriginX, y2 + worldOriginY, color, u2, v2,
+                x3 + worldOriginX, y3 + worldOriginY, color, u3, v3, x4 + worldOriginX, y4 + worldOriginY, color, u4, v4);
+    }
+    
+    /**
+     * Encodes one quad into the compact vertex format. Every draw method ends here.
+     */
+    private void drawQuad(Texture texture, float x1, float y1, float c1, float u1, float v1, float x2, float y2, float c2, float u2, float v2,
+                          float x3, float y3, float c3, float u3, float v3, float x4, float y4, float c4, float u4, float v4) {
+        if (!drawing) throw new IllegalStateException("TenPatchBatch.begin must be called before draw.");
+        if (texture != lastTexture) switchTexture(texture);
+        if (idx == vertices.length) flush();
+        
+        //the first quad of every batch defines the origin
+        if (idx == 0) {
+            setOrigin(x1, y1);
+        } else if (!inRange(x1, originX) || !inRange(x2, originX) || !inRange(x3, originX) || !inRange(x4, originX)
+                || !inRange(y1, originY) || !inRange(y2, originY) || !inRange(y3, originY) || !inRange(y4, originY)) {
+            flush();
+            setOrigin(x1, y1);
+        }
+        
+        vertex(x1, y1, c1, u1, v1);
+        vertex(x2, y2, c2, u2, v2);
+        vertex(x3, y3, c3, u3, v3);
+        vertex(x4, y4, c4, u4, v4);
+    }
+    
+    /**
+     * Moves the origin down to a whole step of the precision so positions that are whole steps stay exact.
+     */
+    private void setOrigin(float x, float y) {
+        originX = MathUtils.floor(x * positionPrecision) / positionPrecision;
+        originY = MathUtils.floor(y * positionPrecision) / positionPrecision;
+    }
+    
+    private boolean inRange(float value, float origin) {
+        float position = (value - origin) * positionPrecision + POSITION_BIAS;
+        return position >= MIN_POSITION && position <= MAX_POSITION;
+    }
+    
+    private void vertex(float x, float y, float color, float u, float v) {
+        float[] vertices = this.vertices;
+        int idx = this.idx;
+        vertices[idx] = pack(encodePosition(x, originX, positionPrecision), encodeTexCoord(u));
+        vertices[idx + 1] = pack(encodePosition(y, originY, positionPrecision), encodeTexCoord(v));
+        vertices[idx + 2] = color;
+        if (vertexSize == MULTI_TEXTURE_VERTEX_SIZE) vertices[idx + 3] = textureIndex;
+        this.idx = idx + vertexSize;
+    }
+    
+    /**
+     * Encodes a position as a 16-bit integer relative to the origin. Positions outside of the range are clamped.
+     */
+    static int encodePosition(float value, float origin, float positionPrecision) {
+        return MathUtils.clamp(MathUtils.round((value - origin) * positionPrecision) + POSITION_BIAS, MIN_POSITION, MAX_POSITION);
+    }
+    
+    /**
+     * Encodes a texture coordinate between 0 and 1 as a normalized 16-bit integer.
+     */
+    static int encodeTexCoord(float value) {
+        return MathUtils.clamp(MathUtils.round(value * 65535f), 0, 65535);
+    }
+    
+    /**
+     * Packs an encoded position and texture coordinate into the bits of one float. The position is in the high bits,
+     * so its range decides the exponent of the float.
+     */
+    static float pack(int position, int texCoord) {
+        return NumberUtils.intBitsToFloat(position << 16 | texCoord);
+    }
+    
+    @Override
+    public void flush() {
+        if (idx == 0) return;
+        
+        renderCalls++;
+        int quads = idx / (4 * vertexSize);
+        int count = quads * 6;
+        
+        //bound in reverse so that unit 0 is active afterwards
+        for (int i = textureCount - 1; i >= 0; i--) {
+            textures[i].bind(i);
+        }
+        mesh.setVertices(vertices, 0, idx);
+        mesh.getIndicesBuffer().position(0);
+        mesh.getIndicesBuffer().limit(count);
+        
+        if (blendingDisabled) {
+            Gdx.gl.glDisable(GL20.GL_BLEND);
+        } else {
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+            if (blendSrcFunc != -1) Gdx.gl.glBlendFuncSeparate(blendSrcFunc, blendDstFunc, blendSrcFuncAlpha, blendDstFuncAlpha);
+        }
+        
+        //the encoded positions are scaled and moved back to the origin of this batch by the matrix
+        ShaderProgram shader = getShader();
+        combinedMatrix.set(projectionMatrix).mul(transformMatrix).translate(originX, originY, 0)
+                .scale(1f / positionPrecision, 1f / positionPrecision, 1f).translate(-POSITION_BIAS, -POSITION_BIAS, 0);
+        shader.setUniformMatrix("u_projTrans", combinedMatrix);
+        mesh.render(shader, GL20.GL_TRIANGLES, 0, count);
+        
+        idx = 0;
+        //the current texture keeps the first unit for the next batch
+        textureCount = 0;
+        if (lastTexture != null) {
+            textures[0] = lastTexture;
+            textureCount = 1;
+            textureIndex = 0;
+        }
+    }
+    
+    /**
+     * Makes the texture current, assigning it to a free texture unit. Flushes if all units are taken.
+     */
+    private void switchTexture(Texture texture) {
+        if (texture == lastTexture) return;
+        int unit = -1;
+        for (int i = 0; i < textureCount; i++) {
+            if (textures[i] == texture) {
+                unit = i;
+                break;
+            }
+        }
+        if (unit == -1) {
+            if (textureCount == textures.length) {
+                flush();
+                textureCount = 0;
+            }
+            unit = textureCount++;
+            textures[unit] = texture;
+        }
+        lastTexture = texture;
+        textureIndex = unit;
+        invTexWidth = 1f / texture.getWidth();
+        invTexHeight = 1f / texture.getHeight();
+    }
+    
+    @Override
+    public void disableBlending() {
+        if (blendingDisabled) return;
+        flush();
+        blendingDisabled = true;
+    }
+    
+    @Override
+    public void enableBlending() {
+        if (!blendingDisabled) return;
+        flush();
+        blendingDisabled = false;
+    }
+    
+    @Override
+    public void setBlendFunction(int srcFunc, int dstFunc) {
+        setBlendFunctionSeparate(srcFunc, dstFunc, srcFunc, dstFunc);
+    }
+    
+    @Override
+    public void setBlendFunctionSeparate(int srcFuncColor, int dstFuncColor, int srcFuncAlpha, int dstFuncAlpha) {
+        if (blendSrcFunc == srcFuncColor && blendDstFunc == dstFuncColor && blendSrcFuncAlpha == srcFuncAlpha
+                && blendDstFuncAlpha == dstFuncAlpha) return;
+        flush();
+        blendSrcFunc = srcFuncColor;
+        blendDstFunc = dstFuncColor;
+        blendSrcFuncAlpha = srcFuncAlpha;
+        blendDstFuncAlpha = dstFuncAlpha;
+    }
+    
+    @Override
+    public int getBlendSrcFunc() {
+        return blendSrcFunc;
+    }
+    
+    @Override
+    public int getBlendDstFunc() {
+        return blendDstFunc;
+    }
+    
+    @Override
+    public int getBlendSrcFuncAlpha() {
+        return blendSrcFuncAlpha;
+    }
+    
+    @Override
+    public int getBlendDstFuncAlpha() {
+        return blendDstFuncAlpha;
+    }
+    
+    @Override
+    public Matrix4 getProjectionMatrix() {
+        return projectionMatrix;
+    }
+    
+    @Override
+    public Matrix4 getTransformMatrix() {
+        return transformMatrix;
+    }
+    
+    @Override
+    public void setProjectionMatrix(Matrix4 projection) {
+        if (drawing) flush();
+        projectionMatrix.set(projection);
+    }
+    
+    @Override
+    public void setTransformMatrix(Matrix4 transform) {
+        if (drawing) flush();
+        transformMatrix.set(transform);
+    }
+    
+    @Override
+    public void setShader(ShaderProgram shader) {
+        if (drawing) {
+            flush();
+            getShader().end();
+        }
+        customShader = shader;
+        if (drawing) {
+            getShader().begin();
+            setTextureUniforms();
+        }
+    }
+    
+    private void setTextureUniforms() {
+        if (textures.length > 1) {
+            for (int i = 0; i < textureUniforms.length; i++) {
+                getShader().setUniformi(textureUniforms[i], i);
+            }
+        } else {
+            getShader().setUniformi("u_texture", 0);
+        }
+    }
+    
+    @Override
+    public ShaderProgram getShader() {
+        return customShader != null ? customShader : shader;
+    }
+    
+    @Override
+    public boolean isBlendingEnabled() {
+        return !blendingDisabled;
+    }
+    
+    @Override
+    public boolean isDrawing() {
+        return drawing;
+    }
+    
+    public float getPositionPrecision() {
+        return positionPrecision;
+    }
+    
+    /**
+     * Returns the maximum number of textures drawn in a single batch.
+     * @return
+     */
+    public int getMaxTextures() {
+        return textures.length;
+    }
+    
+    /**
+     * Returns the number of floats per vertex, either VERTEX_SIZE or MULTI_TEXTURE_VERTEX_SIZE.
+     * @return
+     */
+    public int getVertexSize() {
+        return vertexSize;
+    }
+    
+    @Override
+    public void dispose() {
+        mesh.dispose();
+        if (ownsShader && shader != null) shader.dispose();
+    }
+}
@@ -28,12 +28,20 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
+import com.badlogic.gdx.graphics.g2d.PolygonBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
 /**
@@ -56,7 +64,6 @@ import java.util.Arrays;
  * @see <a href="https://github.com/raeleus/skin-composer">Skin Composer</a>
  */
 public class TenPatchDrawable extends TextureRegionDrawable {
-    static private final Color temp = new Color();
     private Color color = new Color(1, 1, 1, 1);
     private Color color1;
     private Color color2;
@@ -65,18 +72,95 @@ public class TenPatchDrawable extends TextureRegionDrawable {
     public int[] horizontalStretchAreas;
     public int[] verticalStretchAreas;
     public boolean tiling;
+    public boolean mirrorTiling;
+    public boolean flipX;
+    public boolean flipY;
     public float offsetX;
     public float offsetY;
     public float offsetXspeed;
     public float offsetYspeed;
     public float time;
     private final float[] verts = new float[20];
+    private transient final Color temp = new Color();
+    private transient final Affine2 tempTransform = new Affine2();
+    private transient Affine2 transform;
+    private transient float boundsX, boundsY, boundsWidth, boundsHeight;
+    private transient Color tint;
+    private transient float[] exportVertices;
+    private transient FloatBuffer exportFloatBuffer;
+    private transient ByteBuffer exportByteBuffer;
+    private transient int exportOffset, exportCount;
+    private transient VertexLayout exportLayout;
+    private transient FloatArray exportArray;
+    private transient Color exportTint;
+    private transient TenPatchRenderCache renderCache;
+    private transient boolean cacheRendering;
+    private transient final TenPatchAxisCache horizontalAxes = new TenPatchAxisCache();
+    private transient final TenPatchAxisCache verticalAxes = new TenPatchAxisCache();
+    /**
+     * The layouts used by hit tests, kept apart from the layouts that are drawn.
+     */
+    private transient final TenPatchAxisCache hitHorizontalAxes = new TenPatchAxisCache();
+    private transient final TenPatchAxisCache hitVerticalAxes = new TenPatchAxisCache();
+    private transient TenPatchAxis horizontalAxis;
+    private transient TenPatchAxis verticalAxis;
+    private transient int layoutCacheHits, layoutCacheMisses;
+    private transient float[] meshVertices = new float[0];
+    private transient short[] meshTriangles = new short[0];
+    private transient float[] cellVertices = new float[0];
+    private transient TenPatchAlphaMask alphaMask;
+    private transient TenPatchAlphaMask activeMask;
+    private transient int cellPass;
+    private transient byte[] cellClasses = new byte[0];
+    private transient int[] cellClassBounds = new int[0];
+    private transient TenPatchAlphaMask cellClassMask;
+    private transient boolean cellClassMerged;
+    private transient TenPatchAxis cellClassColumns, cellClassRows;
+    private transient int cellClassColumnsGeneration, cellClassRowsGeneration;
+    /**
+     * The clip of the current draw or export. Only set for the duration of the call.
+     */
+    private transient Rectangle clip;
+    private transient boolean stripped;
+    private transient boolean rotated;
+    private transient int[] flippedHorizontalAreas, flippedVerticalAreas;
+    private transient float strippedU, strippedV, strippedU2, strippedV2;
+    private transient final Matrix4 tempMatrix = new Matrix4();
+    private transient Array<VariantAreas> variantAreas;
+    /**
+     * The variant chosen by the last draw to the screen. Reused when rendering into the render cache, whose projection
+     * does not measure the scale on screen.
+     */
+    private transient VariantAreas screenVariant;
+
     private Array<TextureRegion> regions;
+    private Array<TextureRegion> variants;
     private float frameDuration;
     private boolean autoUpdate = true;
     public int playMode = PlayMode.LOOP;
     public float scaleX = 1f, scaleY = 1f;
     public int crushMode = CrushMode.SHRINK;
+    public int tileBudget = -1;
+    public int tileFallback = TileFallback.ENLARGE;
+    public boolean continuousGradient;
+    public int layoutCacheSize = 8;
+    public boolean opaquePass;
+    
+    /**
+     * The maximum number of quads a tiling TenPatchDrawable may submit in a single draw when its tileBudget is not set.
+     * A value of 0 or less disables the limit. The default is 0, so drawables are only limited once a budget is set.
+     * @see TenPatchDrawable#setTileBudget(int)
+     */
+    public static int defaultTileBudget = 0;
+    
+    /**
+     * The maximum number of vertices submitted as a single mesh to a PolygonBatch. Larger grids are drawn as quads. The
+     * PolygonBatch must hold at least this many vertices and twice as many triangles, as a PolygonSpriteBatch created
+     * with this size does. Lower it when drawing with a smaller PolygonSpriteBatch. A value of 0 or less disables the
+     * mesh. The triangles index the vertices with shorts, so values above Short.MAX_VALUE are treated as
+     * Short.MAX_VALUE.
+     */
+    public static int maxMeshVertices = 1000;
     
     /**
      * The strategies used when the drawable is forced to scale below the minimum size.
@@ -110,6 +194,72 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         public static final int NONE = 3;
     }
     
+    /**
+     * The strategies used when drawing a tiling drawable would exceed its tile budget.
+     * @see TenPatchDrawable#setTileBudget(int)
+     */
+    public static class TileFallback {
+        /**
+         * The tiles are enlarged by the smallest whole factor that brings the
+         * number of quads within the budget. If that is not possible, the
+         * stretch areas are stretched instead.
+         */
+        public static final int ENLARGE = 0;
+        
+        /**
+         * The stretch areas are stretched instead of tiled.
+         */
+        public static final int STRETCH = 1;
+        
+        /**
+         * The drawable is rendered once into its render cache and drawn as a
+         * single quad. Uses ENLARGE if no render cache has been set.
+         * @see TenPatchDrawable#setRenderCache(TenPatchRenderCache)
+         */
+        public static final int CACHE = 2;
+    }
+    
+    /**
+     * Describes where the attributes of each vertex are written by the geometry export methods. All attributes are
+     * floats. The color is packed into a single float as with SpriteBatch.
+     * @see TenPatchDrawable#writeVertices(float[], int, VertexLayout, float, float, float, float)
+     */
+    public static class VertexLayout {
+        /**
+         * The layout used by SpriteBatch: x, y, packed color, u, v.
+         */
+        public static final VertexLayout SPRITE_BATCH = new VertexLayout(5, 0, 2, 3);
+        
+        /**
+         * A layout without color: x, y, u, v.
+         */
+        public static final VertexLayout POSITION_TEXTURE = new VertexLayout(4, 0, -1, 2);
+        
+        /**
+         * The number of floats per vertex.
+         */
+        public final int stride;
+        /**
+         * The index of x within the vertex. y follows x.
+         */
+        public final int position;
+        /**
+         * The index of the packed color within the vertex. -1 if the color is not written.
+         */
+        public final int color;
+        /**
+         * The index of u within the vertex. v follows u.
+         */
+        public final int texCoords;
+        
+        public VertexLayout(int stride, int position, int color, int texCoords) {
+            this.stride = stride;
+            this.position = position;
+            this.color = color;
+            this.texCoords = texCoords;
+        }
+    }
+    
     public static class PlayMode {
         public static final int NORMAL = 0, REVERSED = 1, LOOP = 2, LOOP_REVERSED = 3, LOOP_PINGPONG = 4, LOOP_RANDOM = 5;
     }
@@ -164,12 +314,16 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         horizontalStretchAreas = other.horizontalStretchAreas == null ? null : Arrays.copyOf(other.horizontalStretchAreas, other.horizontalStretchAreas.length);
         verticalStretchAreas = other.verticalStretchAreas == null ? null : Arrays.copyOf(other.verticalStretchAreas, other.verticalStretchAreas.length);
         tiling = other.tiling;
+        mirrorTiling = other.mirrorTiling;
+        flipX = other.flipX;
+        flipY = other.flipY;
         offsetX = other.offsetX;
         offsetY = other.offsetY;
         offsetXspeed = other.offsetXspeed;
         offsetYspeed = other.offsetYspeed;
         time = other.time;
-        regions = regions == null ? null : new Array<TextureRegion>(other.regions);
+        regions = other.regions == null ? null : new Array<TextureRegion>(other.regions);
+        variants = other.variants == null ? null : new Array<TextureRegion>(other.variants);
         frameDuration = other.frameDuration;
         autoUpdate = other.autoUpdate;
         playMode = other.playMode;
@@ -179,6 +333,14 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         scaleX = other.scaleX;
         scaleY = other.scaleY;
         crushMode = other.crushMode;
+        tileBudget = other.tileBudget;
+        tileFallback = other.tileFallback;
+        continuousGradient = other.continuousGradient;
+        renderCache = other.renderCache;
+        alphaMask = other.alphaMask;
+        opaquePass = other.opaquePass;
+        layoutCacheSize = other.layoutCacheSize;
+        setAxisStore(other.horizontalAxes.store);
         setRegion(other.getRegion());
     }
 
@@ -200,406 +362,1302 @@ public class TenPatchDrawable extends TextureRegionDrawable {
      */
     @Override
     public void draw(Batch batch, float x, float y, float width, float height) {
-        if (autoUpdate) {
+        if (autoUpdate && !cacheRendering) {
             update(Gdx.graphics.getDeltaTime(), true);
         }
+        drawPatches(batch, x, y, width, height);
+    }
+    
+    /**
+     * Lays out the TenPatch and submits its quads to the batch or, if the batch is null, to the export target.
+     * @param batch Can be null.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    private void drawPatches(Batch batch, float x, float y, float width, float height) {
+        tint = batch != null ? batch.getColor() : exportTint != null ? exportTint : Color.WHITE;
+        boundsX = x;
+        boundsY = y;
+        boundsWidth = width;
+        boundsHeight = height;
         
         float previousValue = 0;
         for (float value : horizontalStretchAreas) {
-            if (value < previousValue || value >= getRegion().getRegionWidth()) {
+            if (value < previousValue || value >= getOriginalWidth(getRegion())) {
                 throw new InvalidPatchException();
             }
         }
 
-        //properties from the texture region
+        //properties from the texture region or the resolution variant that suits the scale on screen
+        TextureRegion region = getRegion();
+        int[] horizontalAreas = horizontalStretchAreas;
+        int[] verticalAreas = verticalStretchAreas;
+        float layoutScaleX = scaleX;
+        float layoutScaleY = scaleY;
+        if (variants != null && variants.size > 0 && (regions == null || regions.size == 0)) {
+            VariantAreas variant = cacheRendering ? screenVariant : chooseVariant(batch, region);
+            screenVariant = variant;
+            if (variant != null) {
+                layoutScaleX = scaleX * getOriginalWidth(region) / getOriginalWidth(variant.region);
+                layoutScaleY = scaleY * getOriginalHeight(region) / getOriginalHeight(variant.region);
+                region = variant.region;
+                horizontalAreas = variant.horizontal;
+                verticalAreas = variant.vertical;
+            }
+        }
+        Texture texture = region.getTexture();
+        stripped = isStripped(region);
+        rotated = isRotated(region);
+        if (stripped) {
+            //the bounds are in the texture coordinates of each axis, which are swapped for a rotated region
+            strippedU = Math.min(region.getU(), region.getU2());
+            strippedU2 = Math.max(region.getU(), region.getU2());
+            strippedV = Math.min(region.getV(), region.getV2());
+            strippedV2 = Math.max(region.getV(), region.getV2());
+            if (rotated) {
+                float u = strippedU;
+                float u2 = strippedU2;
+                strippedU = strippedV;
+                strippedU2 = strippedV2;
+                strippedV = u;
+                strippedV2 = u2;
+            }
+        }
+        
+        layout(region, texture, width, height, horizontalAreas, verticalAreas, layoutScaleX, layoutScaleY, horizontalAxes,
+                verticalAxes, layoutCacheSize);
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
+        if (horizontalAxes.hit && verticalAxes.hit) {
+            layoutCacheHits++;
+        } else {
+            layoutCacheMisses++;
+        }
+        
+        //the cache renders into a FrameBuffer the size of the bounds, which would cut off anything drawn outside of them
+        boolean cacheable = renderCache != null && batch != null && !cacheRendering && clip == null
+                && horizontalAxis.isWithinDrawSize() && verticalAxis.isWithinDrawSize();
+        if (cacheable && tileFallback != TileFallback.CACHE) {
+            if (renderCache.draw(this, batch, x, y, width, height, transform)) return;
+        }
+        
+        //enlarge the tiles or disable tiling if the tile budget would be exceeded
+        boolean tiling = this.tiling;
+        float tileScale = 1f;
+        if (tiling && !cacheRendering && countTiles(1) > getEffectiveTileBudget()) {
+            if (tileFallback == TileFallback.CACHE && cacheable) {
+                if (renderCache.draw(this, batch, x, y, width, height, transform)) return;
+            }
+            tileScale = getBudgetTileScale();
+            tiling = tileScale > 0;
+        }
+
+        //the alpha mask only applies to the region it was created for, which may not be the current animation frame
+        activeMask = alphaMask != null && alphaMask.matches(region) ? alphaMask : null;
+        boolean splitOpaque = activeMask != null && activeMask.hasOpaque() && opaquePass && batch != null && batch.isBlendingEnabled() && isOpaqueTint();
+        
+        //a PolygonBatch can draw the grid of cells as one mesh with shared vertices
+        if (!tiling && !splitOpaque && clip == null && batch instanceof PolygonBatch && (continuousGradient || color1 == null && color2 == null && color3 == null && color4 == null)) {
+            if (drawMesh((PolygonBatch) batch, texture, x, y)) return;
+        }
+        
+        if (tiling) {
+            columns.updateTiles(offsetX, tileScale, mirrorTiling);
+            rows.updateTiles(offsetY, tileScale, mirrorTiling);
+        }
+        if (splitOpaque) {
+            //opaque cells are drawn first without blending, then the remaining cells are blended
+            batch.disableBlending();
+            cellPass = TenPatchAlphaMask.OPAQUE;
+            emitCells(batch, texture, x, y, tiling);
+            batch.enableBlending();
+            cellPass = TenPatchAlphaMask.TRANSLUCENT;
+            emitCells(batch, texture, x, y, tiling);
+            cellPass = 0;
+        } else {
+            emitCells(batch, texture, x, y, tiling);
+        }
+    }
+    
+    /**
+     * Returns true if every vertex is drawn with an alpha of 1, so the opaque cells stay opaque when they are drawn with
+     * blending disabled. A faded drawable must be blended.
+     */
+    private boolean isOpaqueTint() {
+        if (tint.a < 1) return false;
+        return (color1 != null ? color1 : color).a >= 1 && (color2 != null ? color2 : color).a >= 1
+                && (color3 != null ? color3 : color).a >= 1 && (color4 != null ? color4 : color).a >= 1;
+    }
+    
+    /**
+     * Chooses the emitter for the cells. The emitter is chosen once per draw so the cell loops do not branch on the
+     * configuration.
+     */
+    private void emitCells(Batch batch, Texture texture, float x, float y, boolean tiling) {
+        if (tiling) {
+            drawTiledCells(batch, texture, x, y);
+        } else if ((batch != null || exportArray != null) && transform == null && !continuousGradient && color1 == null && color2 == null && color3 == null && color4 == null) {
+            drawSolidCells(batch, texture, x, y);
+        } else {
+            drawCells(batch, texture, x, y);
+        }
+    }
+    
+    /**
+     * Returns the class of every cell formed by the given spans according to the alpha mask. The classes are cached
+     * until either axis is laid out again.
+     * @param merged Whether the spans are the merged spans of the axes.
+     * @return The classes of the cells by row, or null if there is no alpha mask for the current region.
+     * @see TenPatchAlphaMask
+     */
+    private byte[] getCellClasses(Texture texture, int columnCount, float[] columnStart, float[] columnEnd, int rowCount,
+                                  float[] rowStart, float[] rowEnd, boolean merged) {
+        TenPatchAlphaMask mask = activeMask;
+        if (mask == null) return null;
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
+        if (mask == cellClassMask && merged == cellClassMerged && columns == cellClassColumns && rows == cellClassRows
+                && columns.generation == cellClassColumnsGeneration && rows.generation == cellClassRowsGeneration) {
+            return cellClasses;
+        }
+        cellClassMask = mask;
+        cellClassMerged = merged;
+        cellClassColumns = columns;
+        cellClassRows = rows;
+        cellClassColumnsGeneration = columns.generation;
+        cellClassRowsGeneration = rows.generation;
+        
+        //linear filtering samples the neighboring pixels at the edges of a cell
+        int expand = texture.getMagFilter() == Texture.TextureFilter.Linear || texture.getMinFilter() == Texture.TextureFilter.Linear ? 1 : 0;
+        if (cellClasses.length < columnCount * rowCount) cellClasses = new byte[columnCount * rowCount];
+        if (cellClassBounds.length < columnCount * 2) cellClassBounds = new int[columnCount * 2];
+        //the columns of a rotated region are rows of the texture and its rows are columns of the texture
+        int columnTextureSize = rotated ? texture.getHeight() : texture.getWidth();
+        int columnRegionStart = rotated ? mask.getRegionY() : mask.getRegionX();
+        int rowTextureSize = rotated ? texture.getWidth() : texture.getHeight();
+        int rowRegionStart = rotated ? mask.getRegionX() : mask.getRegionY();
+        for (int column = 0; column < columnCount; column++) {
+            float start = columnStart[column] * columnTextureSize - columnRegionStart;
+            float end = columnEnd[column] * columnTextureSize - columnRegionStart;
+            cellClassBounds[column * 2] = MathUtils.floor(Math.min(start, end)) - expand;
+            cellClassBounds[column * 2 + 1] = MathUtils.ceil(Math.max(start, end)) + expand;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            float start = rowStart[row] * rowTextureSize - rowRegionStart;
+            float end = rowEnd[row] * rowTextureSize - rowRegionStart;
+            int top = MathUtils.floor(Math.min(start, end)) - expand;
+            int bottom = MathUtils.ceil(Math.max(start, end)) + expand;
+            for (int column = 0; column < columnCount; column++) {
+                if (rotated) {
+                    cellClasses[row * columnCount + column] = (byte) mask.classify(top, cellClassBounds[column * 2], bottom, cellClassBounds[column * 2 + 1]);
+                } else {
+                    cellClasses[row * columnCount + column] = (byte) mask.classify(cellClassBounds[column * 2], top, cellClassBounds[column * 2 + 1], bottom);
+                }
+            }
+        }
+        return cellClasses;
+    }
+    
+    /**
+     * Returns true if the cell is transparent or belongs to the other pass of a split opaque draw.
+     * @param classes The classes from getCellClasses(). Can be null.
+     * @param index
+     */
+    private boolean isCulled(byte[] classes, int index) {
+        if (classes == null) return false;
+        int cellClass = classes[index];
+        if (cellClass == TenPatchAlphaMask.EMPTY) return true;
+        return cellPass != 0 && (cellClass == TenPatchAlphaMask.OPAQUE) != (cellPass == TenPatchAlphaMask.OPAQUE);
+    }
+    
+    /**
+     * Draws every cell as a single quad. If the cells share one color, adjacent cells that continue each other's texture
+     * coordinates are drawn as one quad. The axes must be up to date.
+     * @param batch Can be null.
+     * @param texture
+     * @param x
+     * @param y
+     */
+    private void drawCells(Batch batch, Texture texture, float x, float y) {
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
+        if (!continuousGradient && color1 == null && color2 == null && color3 == null && color4 == null) {
+            columns.computeMerged();
+            rows.computeMerged();
+            byte[] classes = getCellClasses(texture, columns.mergedCount, columns.mergedCoordStart, columns.mergedCoordEnd,
+                    rows.mergedCount, rows.mergedCoordStart, rows.mergedCoordEnd, true);
+            for (int row = 0; row < rows.mergedCount; row++) {
+                for (int column = 0; column < columns.mergedCount; column++) {
+                    if (isCulled(classes, row * columns.mergedCount + column)) continue;
+                    drawToBatch(batch, texture, x + columns.mergedPosition[column], y + rows.mergedPosition[row],
+                            columns.mergedSize[column], rows.mergedSize[row], columns.mergedCoordStart[column],
+                            rows.mergedCoordStart[row], columns.mergedCoordEnd[column], rows.mergedCoordEnd[row]);
+                }
+            }
+        } else {
+            byte[] classes = getCellClasses(texture, columns.count, columns.coordStart, columns.coordEnd, rows.count,
+                    rows.coordStart, rows.coordEnd, false);
+            for (int row = 0; row < rows.count; row++) {
+                for (int column = 0; column < columns.count; column++) {
+                    if (isCulled(classes, row * columns.count + column)) continue;
+                    drawToBatch(batch, texture, x + columns.position[column], y + rows.position[row], columns.size[column],
+                            rows.size[row], columns.coordStart[column], rows.coordStart[row], columns.coordEnd[column],
+                            rows.coordEnd[row]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Draws the cells in one color without a transform. Adjacent cells that continue each other's texture coordinates
+     * are drawn as one quad and the vertices of all quads are submitted to the batch in a single call, so the common
+     * nine cell TenPatch costs one draw call. The axes must be up to date.
+     * @param batch Can be null when the vertices are appended to an array.
+     * @param texture
+     * @param x
+     * @param y
+     */
+    private void drawSolidCells(Batch batch, Texture texture, float x, float y) {
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
+        columns.computeMerged();
+        rows.computeMerged();
+        int length = columns.mergedCount * rows.mergedCount * 20;
+        if (cellVertices.length < length) cellVertices = new float[length];
+        float[] vertices = cellVertices;
+        float packedColor = getVertexColor(x, y, null);
+        //a TenPatchBatch encodes the cells directly instead of receiving SpriteBatch vertices
+        TenPatchBatch tenPatchBatch = batch instanceof TenPatchBatch && !rotated ? (TenPatchBatch) batch : null;
+        byte[] classes = getCellClasses(texture, columns.mergedCount, columns.mergedCoordStart, columns.mergedCoordEnd,
+                rows.mergedCount, rows.mergedCoordStart, rows.mergedCoordEnd, true);
+        int i = 0;
+        for (int row = 0; row < rows.mergedCount; row++) {
+            float y1 = y + rows.mergedPosition[row];
+            float height = rows.mergedSize[row];
+            float y2 = y1 + height;
+            float v = rows.mergedCoordStart[row];
+            float v2 = rows.mergedCoordEnd[row];
+            if (stripped) {
+                float start = getTrimStart(v, v2, strippedV, strippedV2);
+                float end = getTrimEnd(v, v2, strippedV, strippedV2);
+                if (end <= start) continue;
+                if (start > 0 || end < 1) {
+                    float vRange = v2 - v;
+                    v2 = MathUtils.clamp(v + vRange * end, strippedV, strippedV2);
+                    v = MathUtils.clamp(v + vRange * start, strippedV, strippedV2);
+                    y1 = y1 + height * start;
+                    height = height * (end - start);
+                    y2 = y1 + height;
+                }
+            }
+            if (clip != null) {
+                float bottom = Math.max(y1, clip.y);
+                float top = Math.min(y2, clip.y + clip.height);
+                if (top <= bottom) continue;
+                if (bottom != y1 || top != y2) {
+                    float vRange = v2 - v;
+                    v2 = v + vRange * ((top - y1) / height);
+                    v = v + vRange * ((bottom - y1) / height);
+                    y1 = bottom;
+                    y2 = bottom + (top - bottom);
+                }
+            }
+            for (int column = 0; column < columns.mergedCount; column++) {
+                if (isCulled(classes, row * columns.mergedCount + column)) continue;
+                float x1 = x + columns.mergedPosition[column];
+                float width = columns.mergedSize[column];
+                float x2 = x1 + width;
+                float u = columns.mergedCoordStart[column];
+                float u2 = columns.mergedCoordEnd[column];
+                if (stripped) {
+                    float start = getTrimStart(u, u2, strippedU, strippedU2);
+                    float end = getTrimEnd(u, u2, strippedU, strippedU2);
+                    if (end <= start) continue;
+                    if (start > 0 || end < 1) {
+                        float uRange = u2 - u;
+                        u2 = MathUtils.clamp(u + uRange * end, strippedU, strippedU2);
+                        u = MathUtils.clamp(u + uRange * start, strippedU, strippedU2);
+                        x1 = x1 + width * start;
+                        width = width * (end - start);
+                        x2 = x1 + width;
+                    }
+                }
+                if (clip != null) {
+                    float left = Math.max(x1, clip.x);
+                    float right = Math.min(x2, clip.x + clip.width);
+                    if (right <= left) continue;
+                    if (left != x1 || right != x2) {
+                        float uRange = u2 - u;
+                        u2 = u + uRange * ((right - x1) / width);
+                        u = u + uRange * ((left - x1) / width);
+                        x1 = left;
+                        x2 = left + (right - left);
+                    }
+                }
+                if (tenPatchBatch != null) {
+                    tenPatchBatch.drawRectangle(texture, x1, y1, x2, y2, u, v, u2, v2, packedColor);
+                    continue;
+                }
+                
+                vertices[i++] = x1;
+                vertices[i++] = y1;
+                vertices[i++] = packedColor;
+                vertices[i++] = u;
+                vertices[i++] = v;
+                
+                vertices[i++] = x1;
+                vertices[i++] = y2;
+                vertices[i++] = packedColor;
+                vertices[i++] = u;
+                vertices[i++] = v2;
+                
+                vertices[i++] = x2;
+                vertices[i++] = y2;
+                vertices[i++] = packedColor;
+                vertices[i++] = u2;
+                vertices[i++] = v2;
+                
+                vertices[i++] = x2;
+                vertices[i++] = y1;
+                vertices[i++] = packedColor;
+                vertices[i++] = u2;
+                vertices[i++] = v;
+            }
+        }
+        if (rotated) swapTexCoords(vertices, i);
+        if (i > 0) {
+            if (batch != null) {
+                batch.draw(texture, vertices, 0, i);
+            } else {
+                exportArray.addAll(vertices, 0, i);
+                exportCount += i / 5;
+            }
+        }
+    }
+    
+    /**
+     * Draws the cells of a tiling TenPatch. Cells that stretch in either direction are divided into tiles. The tile
+     * pieces of both axes must be up to date.
+     * @param batch Can be null.
+     * @param texture
+     * @param x
+     * @param y
+     */
+    private void drawTiledCells(Batch batch, Texture texture, float x, float y) {
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
+        //the tiles of a cell show the same pixels as the cell
+        byte[] classes = getCellClasses(texture, columns.count, columns.coordStart, columns.coordEnd, rows.count,
+                rows.coordStart, rows.coordEnd, false);
+        for (int row = 0; row < rows.count; row++) {
+            boolean stretchY = rows.stretch[row];
+            for (int column = 0; column < columns.count; column++) {
+                if (isCulled(classes, row * columns.count + column)) continue;
+                if (stretchY || columns.stretch[column]) {
+                    drawTiles(batch, texture, x, y, column, row);
+                } else {
+                    drawToBatch(batch, texture, x + columns.position[column], y + rows.position[row], columns.size[column],
+                            rows.size[row], columns.coordStart[column], rows.coordStart[row], columns.coordEnd[column],
+                            rows.coordEnd[row]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns true if the TenPatch drawn at the given size shows a pixel that is not fully transparent at the point. The
+     * point is mapped back to a pixel of the region through the current layout, including stretching, tiling, offset,
+     * scale, and crush mode, and tested against the alpha mask. This is useful for buttons that are not rectangular.
+     * Without an alpha mask for the current region, every point inside the bounds is a hit.
+     * @param x The x-coordinate relative to the left edge of the drawable.
+     * @param y The y-coordinate relative to the bottom edge of the drawable.
+     * @param width The width the drawable is drawn at.
+     * @param height The height the drawable is drawn at.
+     * @return
+     * @see TenPatchDrawable#setAlphaMask(TenPatchAlphaMask)
+     */
+    public boolean hit(float x, float y, float width, float height) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
         TextureRegion region = getRegion();
+        if (alphaMask == null || !alphaMask.matches(region)) return true;
+        
+        //the hit test lays out its own axes, so it doesn't replace the layouts that are drawn or change their statistics
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
         Texture texture = region.getTexture();
-        float w = region.getRegionWidth() * scaleX;
-        float h = region.getRegionHeight() * scaleY;
+        layout(region, texture, width, height, horizontalStretchAreas, verticalStretchAreas, scaleX, scaleY,
+                hitHorizontalAxes, hitVerticalAxes, 1);
+        try {
+            boolean tiling = this.tiling;
+            float tileScale = 1f;
+            if (tiling && countTiles(1) > getEffectiveTileBudget()) {
+                tileScale = getBudgetTileScale();
+                tiling = tileScale > 0;
+            }
+            if (tiling) {
+                horizontalAxis.updateTiles(offsetX, tileScale, mirrorTiling);
+                verticalAxis.updateTiles(offsetY, tileScale, mirrorTiling);
+            }
+            
+            float u = horizontalAxis.getCoord(x, tiling);
+            float v = verticalAxis.getCoord(y, tiling);
+            if (Float.isNaN(u) || Float.isNaN(v)) return false;
+            if (isRotated(region)) {
+                float coord = u;
+                u = v;
+                v = coord;
+            }
+            return alphaMask.isVisible(MathUtils.floor(u * texture.getWidth()) - alphaMask.getRegionX(),
+                    MathUtils.floor(v * texture.getHeight()) - alphaMask.getRegionY());
+        } finally {
+            horizontalAxis = columns;
+            verticalAxis = rows;
+        }
+    }
+    
+    /**
+     * Draws the TenPatch at 0,0 without a transform, animation updates, or tile budget. Used by the render cache.
+     * @see TenPatchRenderCache
+     */
+    void drawToCache(Batch batch, float width, float height) {
+        Affine2 transform = this.transform;
+        this.transform = null;
+        cacheRendering = true;
+        draw(batch, 0, 0, width, height);
+        cacheRendering = false;
+        this.transform = transform;
+    }
+    
+    /**
+     * Returns the region that was drawn most recently, which is the resolution variant chosen for the screen if there
+     * is one. Used by the render cache.
+     */
+    TextureRegion getDrawnRegion() {
+        if (screenVariant != null && variants != null && variants.size > 0 && (regions == null || regions.size == 0)) {
+            return screenVariant.region;
+        }
+        return getRegion();
+    }
+    
+    /**
+     * Lays out both axes for the size. Each axis is only laid out again if no recently used layout in its cache matches
+     * its size, scale, and definition.
+     * @param capacity The number of layouts kept by each cache.
+     */
+    private void layout(TextureRegion region, Texture texture, float width, float height, int[] horizontalAreas,
+                        int[] verticalAreas, float scaleX, float scaleY, TenPatchAxisCache horizontalCache,
+                        TenPatchAxisCache verticalCache, int capacity) {
+        boolean linear = texture.getMagFilter() == Texture.TextureFilter.Linear || texture.getMinFilter() == Texture.TextureFilter.Linear;
+        int regionWidth = getPackedWidth(region);
+        int regionHeight = getPackedHeight(region);
         float u = region.getU();
         float u2 = region.getU2();
         float v = region.getV2();
         float v2 = region.getV();
-
-        //values to pass to batch.draw()
-        float drawWidth;
-        float drawHeight;
-        float drawU;
-        float drawV;
-        float drawU2;
-        float drawV2;
-
-        //calculated values
-        float extraWidth = MathUtils.floor(width) - w;
-        float extraHeight = MathUtils.floor(height) - h;
-        float originX = 0f;
-        float originY = 0f;
-
-        float totalWidthStretch = 0f;
-        for (int i = 0; i < horizontalStretchAreas.length; i += 2) {
-            totalWidthStretch += horizontalStretchAreas[i + 1] - horizontalStretchAreas[i] + 1;
+        float texelWidth = linear ? .5f / texture.getWidth() : 0;
+        float texelHeight = linear ? .5f / texture.getHeight() : 0;
+        
+        //a rotated region is stored turned 90 degrees counterclockwise, so the horizontal axis runs up the texture and
+        //the vertical axis runs from right to left
+        if (isRotated(region)) {
+            u = region.getV2();
+            u2 = region.getV();
+            v = region.getU2();
+            v2 = region.getU();
+            float texel = texelWidth;
+            texelWidth = texelHeight;
+            texelHeight = texel;
+        }
+        
+        //the margins stripped from an atlas region are laid out as part of the region and trimmed when drawn
+        if (isStripped(region)) {
+            AtlasRegion atlasRegion = (AtlasRegion) region;
+            float pixelU = (u2 - u) / regionWidth;
+            float pixelV = (v2 - v) / regionHeight;
+            u -= atlasRegion.offsetX * pixelU;
+            u2 = u + atlasRegion.originalWidth * pixelU;
+            v -= atlasRegion.offsetY * pixelV;
+            v2 = v + atlasRegion.originalHeight * pixelV;
+            regionWidth = atlasRegion.originalWidth;
+            regionHeight = atlasRegion.originalHeight;
+        }
+        
+        //a flipped axis runs through the region backwards with its stretch areas mirrored to match
+        if (flipX) {
+            float coord = u;
+            u = u2;
+            u2 = coord;
+            horizontalAreas = flippedHorizontalAreas = mirrorAreas(horizontalAreas, regionWidth, flippedHorizontalAreas);
+        }
+        if (flipY) {
+            float coord = v;
+            v = v2;
+            v2 = coord;
+            verticalAreas = flippedVerticalAreas = mirrorAreas(verticalAreas, regionHeight, flippedVerticalAreas);
+        }
+        horizontalAxis = horizontalCache.obtain(capacity, horizontalAreas, regionWidth, scaleX, width, crushMode, u, u2, texelWidth, !tiling);
+        verticalAxis = verticalCache.obtain(capacity, verticalAreas, regionHeight, scaleY, height, crushMode, v, v2, texelHeight, !tiling);
+    }
+    
+    /**
+     * Returns the stretch areas mirrored across a region of the specified size, reusing the mirrored array if it has
+     * the same length.
+     */
+    private static int[] mirrorAreas(int[] areas, int size, int[] mirrored) {
+        if (mirrored == null || mirrored.length != areas.length) mirrored = new int[areas.length];
+        for (int i = 0; i < areas.length; i++) {
+            mirrored[areas.length - 1 - i] = size - 1 - areas[i];
+        }
+        return mirrored;
+    }
+    
+    /**
+     * Returns true if the region is an AtlasRegion that was packed rotated 90 degrees.
+     */
+    static boolean isRotated(TextureRegion region) {
+        return region instanceof AtlasRegion && ((AtlasRegion) region).rotate;
+    }
+    
+    /**
+     * Returns the width of the image in the region, which is the height of the region if it is rotated.
+     */
+    private static int getPackedWidth(TextureRegion region) {
+        return isRotated(region) ? region.getRegionHeight() : region.getRegionWidth();
+    }
+    
+    /**
+     * Returns the height of the image in the region, which is the width of the region if it is rotated.
+     */
+    private static int getPackedHeight(TextureRegion region) {
+        return isRotated(region) ? region.getRegionWidth() : region.getRegionHeight();
+    }
+    
+    /**
+     * Returns true if the region is an AtlasRegion that was packed with its transparent margins stripped.
+     */
+    static boolean isStripped(TextureRegion region) {
+        if (!(region instanceof AtlasRegion)) return false;
+        AtlasRegion atlasRegion = (AtlasRegion) region;
+        return atlasRegion.offsetX != 0 || atlasRegion.offsetY != 0 || atlasRegion.originalWidth != getPackedWidth(region)
+                || atlasRegion.originalHeight != getPackedHeight(region);
+    }
+    
+    /**
+     * Returns the width of the region including the margins stripped from an AtlasRegion.
+     */
+    static int getOriginalWidth(TextureRegion region) {
+        return isStripped(region) ? ((AtlasRegion) region).originalWidth : getPackedWidth(region);
+    }
+    
+    /**
+     * Returns the height of the region including the margins stripped from an AtlasRegion.
+     */
+    static int getOriginalHeight(TextureRegion region) {
+        return isStripped(region) ? ((AtlasRegion) region).originalHeight : getPackedHeight(region);
+    }
+    
+    /**
+     * Returns the resolution variant whose resolution relative to the region is closest to the number of screen
+     * pixels each pixel of the region covers. The scale on screen includes scaleX and scaleY, the projection and
+     * transform matrices of the batch, and the transform of the drawable.
+     * @param batch Can be null, in which case one unit is one pixel.
+     * @param region The region the variants are relative to.
+     * @return null if the region itself is the closest.
+     */
+    private VariantAreas chooseVariant(Batch batch, TextureRegion region) {
+        float screenScaleX = Math.abs(scaleX);
+        float screenScaleY = Math.abs(scaleY);
+        if (batch != null) {
+            tempMatrix.set(batch.getProjectionMatrix()).mul(batch.getTransformMatrix());
+            float[] val = tempMatrix.val;
+            screenScaleX *= (float) Math.sqrt(val[Matrix4.M00] * val[Matrix4.M00] + val[Matrix4.M10] * val[Matrix4.M10]) * Gdx.graphics.getBackBufferWidth() / 2f;
+            screenScaleY *= (float) Math.sqrt(val[Matrix4.M01] * val[Matrix4.M01] + val[Matrix4.M11] * val[Matrix4.M11]) * Gdx.graphics.getBackBufferHeight() / 2f;
+        }
+        if (transform != null) {
+            screenScaleX *= (float) Math.sqrt(transform.m00 * transform.m00 + transform.m10 * transform.m10);
+            screenScaleY *= (float) Math.sqrt(transform.m01 * transform.m01 + transform.m11 * transform.m11);
+        }
+        float screenScale = (float) Math.sqrt(screenScaleX * screenScaleY);
+        if (!(screenScale > 0)) return null;
+        
+        //resolutions are compared by ratio, so 0.5 and 2 are equally far from 1
+        if (variantAreas == null) variantAreas = new Array<VariantAreas>();
+        VariantAreas best = null;
+        float bestDistance = Math.abs((float) Math.log(screenScale));
+        for (int i = 0; i < variants.size; i++) {
+            if (variantAreas.size <= i) variantAreas.add(new VariantAreas());
+            VariantAreas variant = variantAreas.get(i);
+            variant.update(variants.get(i), region, horizontalStretchAreas, verticalStretchAreas);
+            float resolution = (float) Math.sqrt((float) getOriginalWidth(variant.region) / getOriginalWidth(region)
+                    * getOriginalHeight(variant.region) / getOriginalHeight(region));
+            float distance = Math.abs((float) Math.log(resolution / screenScale));
+            if (distance < bestDistance) {
+                best = variant;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * The stretch areas of a resolution variant, scaled from the stretch areas of the region. They are only
+     * calculated again when the variant, region, or stretch areas change.
+     */
+    private static class VariantAreas {
+        TextureRegion region;
+        private int regionWidth, regionHeight, baseWidth, baseHeight;
+        private int[] horizontalSource = new int[0], verticalSource = new int[0];
+        int[] horizontal = new int[0], vertical = new int[0];
+        
+        void update(TextureRegion region, TextureRegion base, int[] horizontalAreas, int[] verticalAreas) {
+            if (region == this.region && getOriginalWidth(region) == regionWidth && getOriginalHeight(region) == regionHeight
+                    && getOriginalWidth(base) == baseWidth && getOriginalHeight(base) == baseHeight
+                    && Arrays.equals(horizontalAreas, horizontalSource) && Arrays.equals(verticalAreas, verticalSource)) return;
+            this.region = region;
+            regionWidth = getOriginalWidth(region);
+            regionHeight = getOriginalHeight(region);
+            baseWidth = getOriginalWidth(base);
+            baseHeight = getOriginalHeight(base);
+            horizontalSource = Arrays.copyOf(horizontalAreas, horizontalAreas.length);
+            verticalSource = Arrays.copyOf(verticalAreas, verticalAreas.length);
+            horizontal = scale(horizontalAreas, baseWidth, regionWidth);
+            vertical = scale(verticalAreas, baseHeight, regionHeight);
+        }
+        
+        /**
+         * Scales inclusive pairs of pixels so that each area covers the same part of the variant that it covers of the
+         * region.
+         */
+        private static int[] scale(int[] areas, int baseSize, int size) {
+            int[] scaled = new int[areas.length];
+            float ratio = (float) size / baseSize;
+            for (int i = 0; i + 1 < areas.length; i += 2) {
+                int start = MathUtils.clamp(MathUtils.floor(areas[i] * ratio), 0, size - 1);
+                int end = MathUtils.clamp(MathUtils.ceil((areas[i + 1] + 1) * ratio) - 1, start, size - 1);
+                scaled[i] = start;
+                scaled[i + 1] = end;
+            }
+            return scaled;
+        }
+    }
+    
+    /**
+     * Returns the tile budget that applies to this drawable. A value of 0 or less disables the limit.
+     */
+    private int getEffectiveTileBudget() {
+        int budget = tileBudget < 0 ? defaultTileBudget : tileBudget;
+        return budget > 0 ? budget : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Returns the factor the tiles are enlarged by to stay within the tile budget according to the tile fallback. The
+     * axes must be up to date.
+     * @return 0 if the TenPatch must be stretched instead.
+     */
+    private float getBudgetTileScale() {
+        if (tileFallback != TileFallback.ENLARGE && tileFallback != TileFallback.CACHE) return 0;
+        int budget = getEffectiveTileBudget();
+        int quads = countTiles(1);
+        int factor = Math.max(2, MathUtils.ceil((float) Math.sqrt((float) quads / budget)));
+        float maxFactor = Math.max(horizontalAxis.getStretchFactor(), verticalAxis.getStretchFactor());
+        while (countTiles(factor) > budget && factor < maxFactor) {
+            factor++;
+        }
+        return countTiles(factor) > budget ? 0 : factor;
+    }
+    
+    /**
+     * Counts the quads submitted by a tiling draw from the spans of the laid out axes, so the stretch areas of the
+     * variant, flip, and frame that is drawn are counted. The axes must be up to date.
+     * @param tileScale The factor the tiles are enlarged by.
+     * @return The number of quads including the non-stretching cells.
+     */
+    private int countTiles(float tileScale) {
+        long columns = horizontalAxis.countPieces(tileScale);
+        long rows = verticalAxis.countPieces(tileScale);
+        return (int) Math.min(columns * rows, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Draws the tiles of a cell that is tiled in at least one direction. The tile pieces of both axes must be up to
+     * date.
+     * @see TenPatchAxis#updateTiles(float, float, boolean)
+     * @param batch
+     * @param texture
+     * @param x
+     * @param y
+     * @param column
+     * @param row
+     */
+    private void drawTiles(Batch batch, Texture texture, float x, float y, int column, int row) {
+        TenPatchAxis columns = horizontalAxis;
+        TenPatchAxis rows = verticalAxis;
+        int firstColumnPiece = columns.firstPiece[column];
+        int lastColumnPiece = columns.firstPiece[column + 1];
+        for (int j = rows.firstPiece[row], lastRowPiece = rows.firstPiece[row + 1]; j < lastRowPiece; j++) {
+            float yValue = y + rows.piecePosition[j];
+            float height = rows.pieceSize[j];
+            float v = rows.pieceCoordStart[j];
+            float v2 = rows.pieceCoordEnd[j];
+            for (int i = firstColumnPiece; i < lastColumnPiece; i++) {
+                drawToBatch(batch, texture, x + columns.piecePosition[i], yValue, columns.pieceSize[i], height,
+                        columns.pieceCoordStart[i], v, columns.pieceCoordEnd[i], v2);
+            }
         }
-        totalWidthStretch *= scaleX;
+    }
     
-        //totalHeightStretch is the sum of all the vertical stretchable areas defined
-        float totalHeightStretch = 0f;
-        for (int i = 0; i < verticalStretchAreas.length; i += 2) {
-            totalHeightStretch += verticalStretchAreas[i + 1] - verticalStretchAreas[i] + 1;
+    private void drawToBatch(Batch batch, Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+        if (width <= 0 || height <= 0) return;
+        
+        float fx1 = 0, fy1 = 0, fx2 = 1, fy2 = 1;
+        boolean trimmed = false;
+        
+        //the parts of the quad in the margins stripped from an atlas region are not drawn
+        if (stripped) {
+            float start = getTrimStart(u, u2, strippedU, strippedU2);
+            float end = getTrimEnd(u, u2, strippedU, strippedU2);
+            if (end <= start) return;
+            if (start > 0 || end < 1) {
+                float uRange = u2 - u;
+                u2 = MathUtils.clamp(u + uRange * end, strippedU, strippedU2);
+                u = MathUtils.clamp(u + uRange * start, strippedU, strippedU2);
+                x = x + width * start;
+                width = width * (end - start);
+                fx1 = start;
+                fx2 = end;
+                trimmed = true;
+            }
+            start = getTrimStart(v, v2, strippedV, strippedV2);
+            end = getTrimEnd(v, v2, strippedV, strippedV2);
+            if (end <= start) return;
+            if (start > 0 || end < 1) {
+                float vRange = v2 - v;
+                v2 = MathUtils.clamp(v + vRange * end, strippedV, strippedV2);
+                v = MathUtils.clamp(v + vRange * start, strippedV, strippedV2);
+                y = y + height * start;
+                height = height * (end - start);
+                fy1 = start;
+                fy2 = end;
+                trimmed = true;
+            }
+        }
+        
+        //the quad is trimmed to the clip rectangle with its texture coordinates
+        if (clip != null) {
+            float left = Math.max(x, clip.x);
+            float bottom = Math.max(y, clip.y);
+            float right = Math.min(x + width, clip.x + clip.width);
+            float top = Math.min(y + height, clip.y + clip.height);
+            if (right <= left || top <= bottom) return;
+            if (left != x || right != x + width) {
+                float start = (left - x) / width;
+                float end = (right - x) / width;
+                float uRange = u2 - u;
+                u2 = u + uRange * end;
+                u = u + uRange * start;
+                float fxRange = fx2 - fx1;
+                fx2 = fx1 + fxRange * end;
+                fx1 = fx1 + fxRange * start;
+                x = left;
+                width = right - left;
+                trimmed = true;
+            }
+            if (bottom != y || top != y + height) {
+                float start = (bottom - y) / height;
+                float end = (top - y) / height;
+                float vRange = v2 - v;
+                v2 = v + vRange * end;
+                v = v + vRange * start;
+                float fyRange = fy2 - fy1;
+                fy2 = fy1 + fyRange * end;
+                fy1 = fy1 + fyRange * start;
+                y = bottom;
+                height = top - bottom;
+                trimmed = true;
+            }
+        }
+        
+        //the corner colors of a trimmed quad are interpolated from the corners of the whole quad
+        float c1, c2, c3, c4;
+        if (trimmed && !continuousGradient && (color1 != null || color2 != null || color3 != null || color4 != null)) {
+            c1 = getGradientColor(fx1, fy1);
+            c2 = getGradientColor(fx1, fy2);
+            c3 = getGradientColor(fx2, fy2);
+            c4 = getGradientColor(fx2, fy1);
+        } else {
+            c1 = getVertexColor(x, y, color1);
+            c2 = getVertexColor(x, y + height, color2);
+            c3 = getVertexColor(x + width, y + height, color3);
+            c4 = getVertexColor(x + width, y, color4);
+        }
+        
+        float x1 = x, y1 = y;
+        float x2 = x, y2 = y + height;
+        float x3 = x + width, y3 = y + height;
+        float x4 = x + width, y4 = y;
+        if (transform != null) {
+            Affine2 t = transform;
+            x1 = t.m00 * x + t.m01 * y + t.m02;
+            y1 = t.m10 * x + t.m11 * y + t.m12;
+            x2 = t.m00 * x + t.m01 * (y + height) + t.m02;
+            y2 = t.m10 * x + t.m11 * (y + height) + t.m12;
+            x3 = t.m00 * (x + width) + t.m01 * (y + height) + t.m02;
+            y3 = t.m10 * (x + width) + t.m11 * (y + height) + t.m12;
+            x4 = t.m00 * (x + width) + t.m01 * y + t.m02;
+            y4 = t.m10 * (x + width) + t.m11 * y + t.m12;
+        }
+        
+        int i = 0;
+        verts[i++] = x1;
+        verts[i++] = y1;
+        verts[i++] = c1;
+        verts[i++] = u;
+        verts[i++] = v;
+    
+        verts[i++] = x2;
+        verts[i++] = y2;
+        verts[i++] = c2;
+        verts[i++] = u;
+        verts[i++] = v2;
+    
+        verts[i++] = x3;
+        verts[i++] = y3;
+        verts[i++] = c3;
+        verts[i++] = u2;
+        verts[i++] = v2;
+    
+        verts[i++] = x4;
+        verts[i++] = y4;
+        verts[i++] = c4;
+        verts[i++] = u2;
+        verts[i++] = v;
+        if (rotated) swapTexCoords(verts, i);
+        if (batch != null) {
+            batch.draw(texture, verts, 0, verts.length);
+        } else {
+            exportQuad();
+        }
+    }
+    
+    /**
+     * Writes the quad in verts to the export target in the export layout. If there is no target, the vertices are only
+     * counted.
+     */
+    private void exportQuad() {
+        if (exportArray != null) {
+            exportArray.addAll(verts, 0, 20);
+            exportCount += 4;
+            return;
+        }
+        VertexLayout layout = exportLayout;
+        for (int source = 0; source < 20; source += 5) {
+            if (exportVertices != null || exportFloatBuffer != null || exportByteBuffer != null) {
+                int destination = exportCount * layout.stride;
+                putVertexFloat(destination + layout.position, verts[source]);
+                putVertexFloat(destination + layout.position + 1, verts[source + 1]);
+                if (layout.color >= 0) putVertexFloat(destination + layout.color, verts[source + 2]);
+                putVertexFloat(destination + layout.texCoords, verts[source + 3]);
+                putVertexFloat(destination + layout.texCoords + 1, verts[source + 4]);
+            }
+            exportCount++;
+        }
+    }
+    
+    /**
+     * Swaps the texture coordinates of the vertices, which are laid out along the axes of the TenPatch, to the axes of
+     * a rotated region.
+     * @param vertices Vertices in the SpriteBatch layout.
+     * @param length
+     */
+    private static void swapTexCoords(float[] vertices, int length) {
+        for (int i = 3; i < length; i += 5) {
+            float u = vertices[i];
+            vertices[i] = vertices[i + 1];
+            vertices[i + 1] = u;
+        }
+    }
+    
+    private void putVertexFloat(int index, float value) {
+        if (exportVertices != null) {
+            exportVertices[exportOffset + index] = value;
+        } else if (exportFloatBuffer != null) {
+            exportFloatBuffer.put(exportOffset + index, value);
+        } else {
+            exportByteBuffer.putFloat(exportOffset + index * 4, value);
+        }
+    }
+    
+    /**
+     * Returns the packed color of a vertex tinted by the batch color.
+     * @param x The x-coordinate of the vertex before the transform is applied.
+     * @param y The y-coordinate of the vertex before the transform is applied.
+     * @param corner The corner color of the patch for this vertex. Can be null.
+     * @return
+     * @see TenPatchDrawable#setContinuousGradient(boolean)
+     */
+    private float getVertexColor(float x, float y, Color corner) {
+        if (continuousGradient) {
+            float fx = boundsWidth > 0 ? MathUtils.clamp((x - boundsX) / boundsWidth, 0, 1) : 0;
+            float fy = boundsHeight > 0 ? MathUtils.clamp((y - boundsY) / boundsHeight, 0, 1) : 0;
+            return getGradientColor(fx, fy);
+        }
+        temp.set(corner != null ? corner : color);
+        return temp.mul(tint).toFloatBits();
+    }
+    
+    /**
+     * Returns the packed color between the corner colors tinted by the batch color.
+     * @param fx The horizontal position from 0 at the left to 1 at the right.
+     * @param fy The vertical position from 0 at the bottom to 1 at the top.
+     * @return The packed color.
+     */
+    private float getGradientColor(float fx, float fy) {
+        Color bottomLeft = color1 != null ? color1 : color;
+        Color topLeft = color2 != null ? color2 : color;
+        Color topRight = color3 != null ? color3 : color;
+        Color bottomRight = color4 != null ? color4 : color;
+        temp.r = (bottomLeft.r + (bottomRight.r - bottomLeft.r) * fx) * (1 - fy) + (topLeft.r + (topRight.r - topLeft.r) * fx) * fy;
+        temp.g = (bottomLeft.g + (bottomRight.g - bottomLeft.g) * fx) * (1 - fy) + (topLeft.g + (topRight.g - topLeft.g) * fx) * fy;
+        temp.b = (bottomLeft.b + (bottomRight.b - bottomLeft.b) * fx) * (1 - fy) + (topLeft.b + (topRight.b - topLeft.b) * fx) * fy;
+        temp.a = (bottomLeft.a + (bottomRight.a - bottomLeft.a) * fx) * (1 - fy) + (topLeft.a + (topRight.a - topLeft.a) * fx) * fy;
+        return temp.mul(tint).toFloatBits();
+    }
+    
+    /**
+     * Returns the fraction of a span, whose texture coordinates go from c1 to c2, at which the coordinates enter the
+     * range from min to max.
+     */
+    static float getTrimStart(float c1, float c2, float min, float max) {
+        if (c1 == c2) return c1 >= min && c1 <= max ? 0 : 1;
+        float a = (min - c1) / (c2 - c1);
+        float b = (max - c1) / (c2 - c1);
+        return Math.max(0, Math.min(a, b));
+    }
+    
+    /**
+     * Returns the fraction of a span, whose texture coordinates go from c1 to c2, at which the coordinates leave the
+     * range from min to max.
+     */
+    static float getTrimEnd(float c1, float c2, float min, float max) {
+        if (c1 == c2) return c1 >= min && c1 <= max ? 1 : 0;
+        float a = (min - c1) / (c2 - c1);
+        float b = (max - c1) / (c2 - c1);
+        return Math.min(1, Math.max(a, b));
+    }
+    
+    /**
+     * Draws the TenPatch as a single indexed mesh. Adjacent cells share their vertices wherever the texture coordinates
+     * meet, so an n x m grid uses as few as (n + 1) x (m + 1) vertices instead of 4nm. Only possible if the TenPatch is
+     * not tiling and the vertex colors are continuous. The axes must be up to date.
+     * @param batch
+     * @param texture
+     * @param x
+     * @param y
+     * @return false if the grid is too large to be drawn as a single mesh.
+     */
+    private boolean drawMesh(PolygonBatch batch, Texture texture, float x, float y) {
+        if (stripped) {
+            horizontalAxis.computeEdges(strippedU, strippedU2);
+            verticalAxis.computeEdges(strippedV, strippedV2);
+        } else {
+            horizontalAxis.computeEdges();
+            verticalAxis.computeEdges();
         }
-        totalHeightStretch *= scaleY;
-
-        int yIndex = 0;
-        float texY1 = 0f;
-        float cropAccumulatorY = 0;
-        while (yIndex <= verticalStretchAreas.length) {
-            float texY2 = yIndex < verticalStretchAreas.length ? verticalStretchAreas[yIndex] * scaleY : h;
-
-            originX = 0;
-            int xIndex = 0;
-            float texX1 = 0;
-            //row of vertically non-stretching pixels
-            if (height > h - totalHeightStretch || crushMode == CrushMode.NONE) {
-                drawHeight = texY2 - texY1;
-            } else if (crushMode == CrushMode.CROP) {
-                if (height > h - totalHeightStretch) {
-                    drawHeight = texY2 - texY1;
-                } else {
-                    drawHeight = Math.min(texY2 - texY1, height - cropAccumulatorY);
-                    cropAccumulatorY += drawHeight;
-                }
-            }  else if (crushMode == CrushMode.CROP_REVERSED) {
-                if (height > h - totalHeightStretch) {
-                    drawHeight = texY2 - texY1;
-                } else {
-                    float heightToMakeUp = h - totalHeightStretch - height - cropAccumulatorY;
-                    drawHeight = texY2 - texY1 - heightToMakeUp;
-                    drawHeight = MathUtils.clamp(drawHeight, 0, texY2 - texY1);
-                    cropAccumulatorY += MathUtils.clamp(heightToMakeUp, 0, texY2 - texY1);
-                }
-            } else {
-                drawHeight = (texY2 - texY1) * height / (h - totalHeightStretch);
-            }
-            drawHeight = Math.max(drawHeight, 0);
-            float cropAccumulatorX = 0;
-            while (xIndex <= horizontalStretchAreas.length) {
-                //cell of horizontally non-stretching pixels
-                float texX2 = xIndex < horizontalStretchAreas.length ? horizontalStretchAreas[xIndex] * scaleX : w;
-
-                if (width > w - totalWidthStretch || crushMode == CrushMode.NONE) {
-                    drawWidth = texX2 - texX1;
-                } else if (crushMode == CrushMode.CROP) {
-                    if (width > w - totalWidthStretch) {
-                        drawWidth = texX2 - texX1;
-                    } else {
-                        drawWidth = Math.min(texX2 - texX1, width - cropAccumulatorX);
-                        cropAccumulatorX += drawWidth;
-                    }
-                }  else if (crushMode == CrushMode.CROP_REVERSED) {
-                    if (width > w - totalWidthStretch) {
-                        drawWidth = texX2 - texX1;
-                    } else {
-                        float widthToMakeUp = w - totalWidthStretch - width - cropAccumulatorX;
-                        drawWidth = texX2 - texX1 - widthToMakeUp;
-                        drawWidth = MathUtils.clamp(drawWidth, 0, texX2 - texX1);
-                        cropAccumulatorX += MathUtils.clamp(widthToMakeUp, 0, texX2 - texX1);
-                    }
+        
+        int columns = horizontalAxis.edgeCount;
+        int rows = verticalAxis.edgeCount;
+        int vertexCount = columns * rows;
+        //the triangles are stored as shorts, so more vertices would wrap the indices
+        if (vertexCount > Math.min(maxMeshVertices, Short.MAX_VALUE)) return false;
+        
+        if (meshVertices.length < vertexCount * 5) meshVertices = new float[vertexCount * 5];
+        int triangleCount = (horizontalAxis.count * verticalAxis.count) * 6;
+        if (meshTriangles.length < triangleCount) meshTriangles = new short[triangleCount];
+        
+        float packedColor = continuousGradient ? 0 : getVertexColor(x, y, null);
+        int i = 0;
+        for (int row = 0; row < rows; row++) {
+            float vertexY = y + verticalAxis.edgePosition[row];
+            float v = verticalAxis.edgeCoord[row];
+            for (int column = 0; column < columns; column++) {
+                float vertexX = x + horizontalAxis.edgePosition[column];
+                if (transform != null) {
+                    meshVertices[i++] = transform.m00 * vertexX + transform.m01 * vertexY + transform.m02;
+                    meshVertices[i++] = transform.m10 * vertexX + transform.m11 * vertexY + transform.m12;
                 } else {
-                    drawWidth = (texX2 - texX1) * width / (w - totalWidthStretch);
+                    meshVertices[i++] = vertexX;
+                    meshVertices[i++] = vertexY;
                 }
-                drawWidth = Math.max(drawWidth, 0);
-                if (crushMode == CrushMode.CROP) {
-                    drawU = u + (u2 - u) * texX1 / w;
-                    drawV = v + (v2 - v) * texY1 / h;
-                    drawU2 = u + (u2 - u) * Math.min(texX1 + drawWidth, texX2) / w;
-                    drawV2 = v + (v2 - v) * Math.min(texY1 + drawHeight, texY2) / h;
-                } else if (crushMode == CrushMode.CROP_REVERSED) {
-                    drawU = u + (u2 - u) * Math.max(texX2 - drawWidth, texX1) / w;
-                    drawV = v + (v2 - v) * Math.max(texY2 - drawHeight, texY1) / h;
-                    drawU2 = u + (u2 - u) * texX2 / w;
-                    drawV2 = v + (v2 - v) * texY2 / h;
+                meshVertices[i++] = continuousGradient ? getVertexColor(vertexX, vertexY, null) : packedColor;
+                if (rotated) {
+                    meshVertices[i++] = v;
+                    meshVertices[i++] = horizontalAxis.edgeCoord[column];
                 } else {
-                    drawU = u + (u2 - u) * texX1 / w;
-                    drawV = v + (v2 - v) * texY1 / h;
-                    drawU2 = u + (u2 - u) * texX2 / w;
-                    drawV2 = v + (v2 - v) * texY2 / h;
-                }
-                drawPatches(batch, texture, x, y, originX, originY, drawWidth, drawHeight, drawU, drawV, drawU2, drawV2, texX1, texX2, texY1, texY2, true, true, false, false);
-
-                originX += drawWidth;
-                xIndex++;
-
-                //cell of horizontally stretching pixels
-                if (xIndex < horizontalStretchAreas.length) {
-                    texX1 = texX2;
-                    texX2 = (horizontalStretchAreas[xIndex] + 1) * scaleX;
-
-                    drawWidth = texX2 - texX1 + extraWidth * (texX2 - texX1) / totalWidthStretch;
-                    drawWidth = Math.max(drawWidth, 0);
-                    drawU = u + (u2 - u) * texX1 / w;
-                    drawU2 = u + (u2 - u) * texX2 / w;
-                    if (crushMode == CrushMode.CROP_REVERSED) {
-                        drawV = v + (v2 - v) * Math.max(texY1, texY2 - drawHeight) / h;
-                        drawV2 = v + (v2 - v) * texY2 / h;
-                    } else {
-                        drawV = v + (v2 - v) * texY1 / h;
-                        drawV2 = v + (v2 - v) * Math.min(texY1 + drawHeight, texY2) / h;
-                    }
-                    
-                    if (texture.getMagFilter() == Texture.TextureFilter.Linear || texture.getMinFilter() == Texture.TextureFilter.Linear) {
-                        drawU += .5f /texture.getWidth();
-                        drawU2 -= .5f /texture.getWidth();
-                    }
-                    
-                    drawPatches(batch, texture, x, y, originX, originY, drawWidth, drawHeight, drawU, drawV, drawU2, drawV2, texX1, texX2, texY1, texY2, false, true, true, false);
-
-                    originX += drawWidth;
-                    xIndex++;
+                    meshVertices[i++] = horizontalAxis.edgeCoord[column];
+                    meshVertices[i++] = v;
                 }
-                texX1 = texX2;
             }
-            originY += drawHeight;
-            yIndex++;
-
-            if (yIndex < verticalStretchAreas.length) {
-                texY1 = texY2;
-                texY2 = (verticalStretchAreas[yIndex] + 1) * scaleY;
-                xIndex = 0;
-                texX1 = 0;
-                originX = 0;
-                //row of vertically stretching cells
-                drawHeight = texY2 - texY1 + extraHeight * (texY2 - texY1) / totalHeightStretch;
-                drawHeight = Math.max(drawHeight, 0);
-                cropAccumulatorX = 0;
-                while (xIndex <= horizontalStretchAreas.length) {
-                    float texX2 = xIndex < horizontalStretchAreas.length ? horizontalStretchAreas[xIndex] * scaleX : w;
-
-                    //cell of horizontally non-stretching pixels
-                    if (width > w -totalWidthStretch || crushMode == CrushMode.NONE) {
-                        drawWidth = texX2 - texX1;
-                    } else if (crushMode == CrushMode.CROP) {
-                        if (width > w - totalWidthStretch) {
-                            drawWidth = texX2 - texX1;
-                        } else {
-                            drawWidth = Math.min(texX2 - texX1, width - cropAccumulatorX);
-                            cropAccumulatorX += drawWidth;
-                        }
-                    }  else if (crushMode == CrushMode.CROP_REVERSED) {
-                        if (width > w - totalWidthStretch) {
-                            drawWidth = texX2 - texX1;
-                        } else {
-                            float widthToMakeUp = w - totalWidthStretch - width - cropAccumulatorX;
-                            drawWidth = texX2 - texX1 - widthToMakeUp;
-                            drawWidth = MathUtils.clamp(drawWidth, 0, texX2 - texX1);
-                            cropAccumulatorX += MathUtils.clamp(widthToMakeUp, 0, texX2 - texX1);
-                        }
-                    } else {
-                        drawWidth = (texX2 - texX1) * width / (w - totalWidthStretch);
-                    }
-                    drawWidth = Math.max(drawWidth, 0);
-                    if (crushMode == CrushMode.CROP) {
-                        drawU = u + (u2 - u) * texX1 / w;
-                        drawV = v + (v2 - v) * texY1 / h;
-                        drawU2 = u + (u2 - u) * Math.min(texX1 + drawWidth, texX2) / w;
-                        drawV2 = v + (v2 - v) * texY2 / h;
-                    } else if (crushMode == CrushMode.CROP_REVERSED) {
-                        drawU = u + (u2 - u) * Math.max(texX2 - drawWidth, texX1) / w;
-                        drawV = v + (v2 - v) * texY1 / h;
-                        drawU2 = u + (u2 - u) * texX2 / w;
-                        drawV2 = v + (v2 - v) * texY2 / h;
-                    } else {
-                        drawU = u + (u2 - u) * texX1 / w;
-                        drawV = v + (v2 - v) * texY1 / h;
-                        drawU2 = u + (u2 - u) * texX2 / w;
-                        drawV2 = v + (v2 - v) * texY2 / h;
-                    }
-    
-                    if (texture.getMagFilter() == Texture.TextureFilter.Linear || texture.getMinFilter() == Texture.TextureFilter.Linear) {
-                        drawV -= .5f /texture.getHeight();
-                        drawV2 += .5f /texture.getHeight();
-                    }
-                    
-                    drawPatches(batch, texture, x, y, originX, originY, drawWidth, drawHeight, drawU, drawV, drawU2, drawV2, texX1, texX2, texY1, texY2, true, false, false, true);
-
-                    originX += drawWidth;
-                    xIndex++;
-
-                    //cell of horizontally stretching cells
-                    if (xIndex < horizontalStretchAreas.length) {
-                        texX1 = texX2;
-                        texX2 = (horizontalStretchAreas[xIndex] + 1) * scaleX;
-
-                        drawWidth = texX2 - texX1 + extraWidth * (texX2 - texX1) / totalWidthStretch;
-                        drawWidth = Math.max(drawWidth, 0);
-                        drawU = u + (u2 - u) * texX1 / w;
-                        drawV = v + (v2 - v) * texY1 / h;
-                        drawU2 = u + (u2 - u) * texX2 / w;
-                        drawV2 = v + (v2 - v) * texY2 / h;
-    
-                        if (texture.getMagFilter() == Texture.TextureFilter.Linear || texture.getMinFilter() == Texture.TextureFilter.Linear) {
-                            drawU += .5f /texture.getWidth();
-                            drawU2 -= .5f /texture.getWidth();
-                            drawV -= .5f /texture.getHeight();
-                            drawV2 += .5f /texture.getHeight();
-                        }
-                        
-                        drawPatches(batch, texture, x, y, originX, originY, drawWidth, drawHeight, drawU, drawV, drawU2, drawV2, texX1, texX2, texY1, texY2, false, false, true, true);
-
-                        originX += drawWidth;
-                        xIndex++;
-                    }
-                    texX1 = texX2;
-                }
-                originY += drawHeight;
-                yIndex++;
+        }
+        
+        //two triangles per visible cell in the same winding as SpriteBatch
+        byte[] classes = getCellClasses(texture, horizontalAxis.count, horizontalAxis.coordStart, horizontalAxis.coordEnd,
+                verticalAxis.count, verticalAxis.coordStart, verticalAxis.coordEnd, false);
+        int t = 0;
+        for (int row = 0; row < verticalAxis.count; row++) {
+            if (verticalAxis.size[row] <= 0 || verticalAxis.firstEdge[row] == verticalAxis.lastEdge[row]) continue;
+            int bottom = verticalAxis.firstEdge[row] * columns;
+            int top = verticalAxis.lastEdge[row] * columns;
+            for (int column = 0; column < horizontalAxis.count; column++) {
+                if (horizontalAxis.size[column] <= 0 || horizontalAxis.firstEdge[column] == horizontalAxis.lastEdge[column]
+                        || isCulled(classes, row * horizontalAxis.count + column)) continue;
+                int left = horizontalAxis.firstEdge[column];
+                int right = horizontalAxis.lastEdge[column];
+                meshTriangles[t++] = (short) (bottom + left);
+                meshTriangles[t++] = (short) (top + left);
+                meshTriangles[t++] = (short) (top + right);
+                meshTriangles[t++] = (short) (top + right);
+                meshTriangles[t++] = (short) (bottom + right);
+                meshTriangles[t++] = (short) (bottom + left);
             }
-            texY1 = texY2;
         }
+        if (t > 0) batch.draw(texture, meshVertices, 0, i, meshTriangles, 0, t);
+        return true;
     }
     
     /**
-     * Simplifies drawing calls in draw method.
+     * Draws the TenPatch scaled and rotated around the origin. The vertices are transformed on the CPU, so the batch
+     * does not need to be flushed as it does with a transformed Group.
      * @see TenPatchDrawable#draw(Batch, float, float, float, float)
      * @param batch
-     * @param texture
      * @param x
      * @param y
      * @param originX
      * @param originY
-     * @param drawWidth
-     * @param drawHeight
-     * @param drawU
-     * @param drawV
-     * @param drawU2
-     * @param drawV2
-     * @param texX1
-     * @param texX2
-     * @param texY1
-     * @param texY2
-     * @param squeezeX
-     * @param squeezeY 
-     */
-    private void drawPatches(Batch batch, Texture texture, float x, float y, float originX, float originY, float drawWidth, float drawHeight, float drawU, float drawV, float drawU2, float drawV2, float texX1, float texX2, float texY1, float texY2, boolean squeezeX, boolean squeezeY, boolean tilingX, boolean tilingY) {
-        if (!tilingX && !tilingY || !this.tiling) {
-            drawToBatch(batch, texture, x + originX, y + originY, drawWidth, drawHeight, drawU, drawV, drawU2, drawV2);
+     * @param width
+     * @param height
+     * @param scaleX
+     * @param scaleY
+     * @param rotation
+     */
+    public void draw(Batch batch, float x, float y, float originX, float originY, float width, float height, float scaleX,
+            float scaleY, float rotation) {
+        if (scaleX == 1 && scaleY == 1 && rotation == 0) {
+            draw(batch, x, y, width, height);
         } else {
-            float offsetXadjusted = offsetX % (texX2 - texX1);
-            if (offsetXadjusted < 0) offsetXadjusted = (texX2 - texX1) + offsetXadjusted;
-            float offsetYadjusted = offsetY % (texY2 - texY1);
-            if (offsetYadjusted < 0) offsetYadjusted = (texY2 - texY1) + offsetYadjusted;
-            
-            float i, j;
-            
-            //partial row as a result of offsetY
-            if (tilingY) {
-                //partial cell as result of offsetX
-                if (tilingX && offsetXadjusted > 0) {
-                    float xValue = x + originX;
-                    float yValue = y + originY;
-                    float width = Math.min(offsetXadjusted, drawWidth);
-                    float height = Math.min(offsetYadjusted, drawHeight);
-                    float u = drawU2 - (drawU2 - drawU) * offsetXadjusted / (texX2 - texX1);
-                    float v = drawV2 - (drawV - drawV2) * offsetYadjusted / (texY1 - texY2);
-                    float u2 = Math.min(drawU2, drawU2 - (drawU2 - drawU) * (offsetXadjusted - drawWidth) / (texX2 - texX1));
-                    float v2 = Math.max(drawV2, drawV2 - (drawV - drawV2) * (offsetYadjusted - drawHeight) / (texY1 - texY2));
-                    drawToBatch(batch, texture, xValue, yValue, width, height, u, v, u2, v2);
-                }
+            tempTransform.setToTrnRotScl(x + originX, y + originY, rotation, scaleX, scaleY);
+            tempTransform.translate(-originX, -originY);
+            draw(batch, tempTransform, width, height);
+        }
+    }
     
-                //repeating horizontal cells
-                for (i = tilingX ? offsetXadjusted : 0; i < drawWidth && texX2 - texX1 > 0; i += texX2 - texX1) {
-                    float xValue = x + originX + i;
-                    float yValue = y + originY;
-                    float width = Math.min(texX2 - texX1, drawWidth - i);
-                    float height = Math.min(offsetYadjusted, drawHeight);
-                    float u = drawU;
-                    float v = drawV2 - (drawV - drawV2) * offsetYadjusted / (texY1 - texY2);
-                    float u2 = Math.min(drawU2, squeezeX ? drawU2 : drawU + (drawU2 - drawU) * (drawWidth - i) / (texX2 - texX1));
-                    float v2 = Math.max(drawV2, drawV2 - (drawV - drawV2) * (offsetYadjusted - drawHeight) / (texY1 - texY2));
-                    drawToBatch(batch, texture, xValue, yValue, width, height, u, v, u2, v2);
-                }
-            }
-            
-            //repeating vertical rows
-            for (j = tilingY ? offsetYadjusted : 0; j < drawHeight && texY2 - texY1 > 0; j += texY2 - texY1) {
-                //partial cell as result of offsetX
-                if (tilingX && offsetXadjusted > 0) {
-                    float xValue = x + originX;
-                    float yValue = y + originY + j;
-                    float width = Math.min(offsetXadjusted, drawWidth);
-                    float height = Math.min(texY2 - texY1, drawHeight - j);
-                    float u = drawU2 - (drawU2 - drawU) * offsetXadjusted / (texX2 - texX1);
-                    float v = drawV;
-                    float u2 = Math.min(drawU2, drawU2 - (drawU2 - drawU) * (offsetXadjusted - drawWidth) / (texX2 - texX1));
-                    float v2 = Math.max(drawV2, squeezeY ? drawV2 : drawV + (drawV2 - drawV) * (drawHeight - j) / (texY2 - texY1));
-                    drawToBatch(batch, texture, xValue, yValue, width, height, u, v, u2, v2);
-                }
-                
-                //repeating horizontal cells
-                for (i = tilingX ? offsetXadjusted : 0; i < drawWidth && texX2 - texX1 > 0; i += texX2 - texX1) {
-                    float xValue = x + originX + i;
-                    float yValue = y + originY + j;
-                    float width = Math.min(texX2 - texX1, drawWidth - i);
-                    float height = Math.min(texY2 - texY1, drawHeight - j);
-                    float u = drawU;
-                    float v = drawV;
-                    float u2 = Math.min(drawU2, squeezeX ? drawU2 : drawU + (drawU2 - drawU) * (drawWidth - i) / (texX2 - texX1));
-                    float v2 = Math.max(drawV2, squeezeY ? drawV2 : drawV + (drawV2 - drawV) * (drawHeight - j) / (texY2 - texY1));
-                    drawToBatch(batch, texture, xValue, yValue, width, height, u, v, u2, v2);
-                }
-            }
+    /**
+     * Draws the TenPatch with the specified transform applied to each vertex. The TenPatch is laid out at 0,0 with the
+     * given width and height before the transform is applied.
+     * @see TenPatchDrawable#draw(Batch, float, float, float, float)
+     * @see Batch#draw(TextureRegion, float, float, Affine2)
+     * @param batch
+     * @param transform
+     * @param width
+     * @param height
+     */
+    public void draw(Batch batch, Affine2 transform, float width, float height) {
+        this.transform = transform;
+        draw(batch, 0, 0, width, height);
+        this.transform = null;
+    }
+    
+    /**
+     * Draws the TenPatch clipped to a rectangle on the CPU. Quads outside of the rectangle are not drawn and quads
+     * crossing its edges are trimmed along with their texture coordinates and colors. Unlike ScissorStack, this does not
+     * flush the batch, so a ScrollPane full of TenPatches can be drawn in a single batch. The rectangle is in the same
+     * coordinates that the TenPatch is drawn at. The clip only applies to this draw, so a drawable shared through a Skin
+     * is not clipped elsewhere. Clipped draws do not use the render cache.
+     * @param batch
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @param clip Can be null to draw without a clip.
+     */
+    public void draw(Batch batch, float x, float y, float width, float height, Rectangle clip) {
+        this.clip = clip;
+        try {
+            draw(batch, x, y, width, height);
+        } finally {
+            this.clip = null;
         }
     }
     
-    private void drawToBatch(Batch batch, Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
-        int i = 0;
-        verts[i++] = x;
-        verts[i++] = y;
-        temp.set(color1 != null ? color1 : color);
-        verts[i++] = temp.mul(batch.getColor()).toFloatBits();
-        verts[i++] = u;
-        verts[i++] = v;
+    /**
+     * Writes the quads of the TenPatch drawn at the specified position and size into an array without drawing them.
+     * Every quad consists of 4 vertices in the same order as SpriteBatch, so it can be drawn as the triangles 0, 1, 2
+     * and 2, 3, 0. The animation and offset are not updated. This method does not require an OpenGL context and does
+     * not allocate once the layouts of the drawable are cached. A TenPatchDrawable may only be used by one thread at a
+     * time, so use a copy per thread to export from several threads.
+     * @param vertices The array to write to. It must be large enough for getVertexCount(width, height) vertices.
+     * @param offset The index in the array to write the first vertex to.
+     * @param layout The layout of each vertex.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return The number of vertices written.
+     * @see TenPatchDrawable#getVertexCount(float, float)
+     */
+    public int writeVertices(float[] vertices, int offset, VertexLayout layout, float x, float y, float width, float height) {
+        return writeVertices(vertices, offset, layout, x, y, width, height, null);
+    }
     
-        verts[i++] = x;
-        verts[i++] = y + height;
-        temp.set(color2 != null ? color2 : color);
-        verts[i++] = temp.mul(batch.getColor()).toFloatBits();
-        verts[i++] = u;
-        verts[i++] = v2;
+    /**
+     * Writes the quads of the TenPatch clipped to a rectangle into an array without drawing them.
+     * @param clip Can be null to write without a clip.
+     * @return The number of vertices written.
+     * @see TenPatchDrawable#writeVertices(float[], int, VertexLayout, float, float, float, float)
+     * @see TenPatchDrawable#draw(Batch, float, float, float, float, Rectangle)
+     */
+    public int writeVertices(float[] vertices, int offset, VertexLayout layout, float x, float y, float width, float height,
+                             Rectangle clip) {
+        exportVertices = vertices;
+        int count = export(offset, layout, x, y, width, height, clip);
+        exportVertices = null;
+        return count;
+    }
     
-        verts[i++] = x + width;
-        verts[i++] = y + height;
-        temp.set(color3 != null ? color3 : color);
-        verts[i++] = temp.mul(batch.getColor()).toFloatBits();
-        verts[i++] = u2;
-        verts[i++] = v2;
+    /**
+     * Writes the quads of the TenPatch drawn at the specified position and size into a FloatBuffer. The position of
+     * the buffer is not changed.
+     * @param vertices The buffer to write to.
+     * @param offset The index in floats in the buffer to write the first vertex to.
+     * @param layout The layout of each vertex.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return The number of vertices written.
+     * @see TenPatchDrawable#writeVertices(float[], int, VertexLayout, float, float, float, float)
+     */
+    public int writeVertices(FloatBuffer vertices, int offset, VertexLayout layout, float x, float y, float width, float height) {
+        return writeVertices(vertices, offset, layout, x, y, width, height, null);
+    }
     
-        verts[i++] = x + width;
-        verts[i++] = y;
-        temp.set(color4 != null ? color4 : color);
-        verts[i++] = temp.mul(batch.getColor()).toFloatBits();
-        verts[i++] = u2;
-        verts[i++] = v;
-        batch.draw(texture, verts, 0, verts.length);
+    /**
+     * Writes the quads of the TenPatch clipped to a rectangle into a FloatBuffer.
+     * @param clip Can be null to write without a clip.
+     * @return The number of vertices written.
+     * @see TenPatchDrawable#writeVertices(FloatBuffer, int, VertexLayout, float, float, float, float)
+     * @see TenPatchDrawable#draw(Batch, float, float, float, float, Rectangle)
+     */
+    public int writeVertices(FloatBuffer vertices, int offset, VertexLayout layout, float x, float y, float width, float height,
+                             Rectangle clip) {
+        exportFloatBuffer = vertices;
+        int count = export(offset, layout, x, y, width, height, clip);
+        exportFloatBuffer = null;
+        return count;
     }
     
     /**
-     * Not supported.
-     * @see TenPatchDrawable#draw(Batch, float, float, float, float)
-     * @param batch
+     * Writes the quads of the TenPatch drawn at the specified position and size into a ByteBuffer, such as a direct
+     * buffer used for a vertex buffer object. Floats are written in the byte order of the buffer. The position of the
+     * buffer is not changed.
+     * @param vertices The buffer to write to.
+     * @param byteOffset The index in bytes in the buffer to write the first vertex to.
+     * @param layout The layout of each vertex.
      * @param x
      * @param y
-     * @param originX
-     * @param originY
      * @param width
      * @param height
-     * @param scaleX
-     * @param scaleY
-     * @param rotation
-     * @deprecated
+     * @return The number of vertices written.
+     * @see TenPatchDrawable#writeVertices(float[], int, VertexLayout, float, float, float, float)
      */
-    @Deprecated
-    public void draw(Batch batch, float x, float y, float originX, float originY, float width, float height, float scaleX,
-            float scaleY, float rotation) {
-        throw new UnsupportedOperationException();
+    public int writeVertices(ByteBuffer vertices, int byteOffset, VertexLayout layout, float x, float y, float width, float height) {
+        return writeVertices(vertices, byteOffset, layout, x, y, width, height, null);
+    }
+    
+    /**
+     * Writes the quads of the TenPatch clipped to a rectangle into a ByteBuffer.
+     * @param clip Can be null to write without a clip.
+     * @return The number of vertices written.
+     * @see TenPatchDrawable#writeVertices(ByteBuffer, int, VertexLayout, float, float, float, float)
+     * @see TenPatchDrawable#draw(Batch, float, float, float, float, Rectangle)
+     */
+    public int writeVertices(ByteBuffer vertices, int byteOffset, VertexLayout layout, float x, float y, float width,
+                             float height, Rectangle clip) {
+        exportByteBuffer = vertices;
+        int count = export(byteOffset, layout, x, y, width, height, clip);
+        exportByteBuffer = null;
+        return count;
+    }
+    
+    /**
+     * Appends the quads of the TenPatch in the SpriteBatch vertex layout to the array, which grows as needed.
+     * @param vertices
+     * @param tint The color multiplied with the colors of the TenPatch.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return The number of vertices appended.
+     * @see TenPatchSystem
+     */
+    int appendVertices(FloatArray vertices, Color tint, float x, float y, float width, float height) {
+        exportArray = vertices;
+        exportTint = tint;
+        int count = export(0, VertexLayout.SPRITE_BATCH, x, y, width, height, null);
+        exportArray = null;
+        exportTint = null;
+        return count;
+    }
+    
+    /**
+     * Appends the quads of the TenPatch like appendVertices() after the automatic update that draw() performs. TenPatches
+     * that need the batch to be drawn correctly, because they use the render cache, the opaque pass, or resolution
+     * variants, are not appended.
+     * @param vertices
+     * @param tint The color multiplied with the colors of the TenPatch.
+     * @param transform The transform applied to each vertex. Can be null.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return The number of vertices appended or -1 if the TenPatch must be drawn to the batch instead.
+     * @see TenPatchStack
+     */
+    int appendLayer(FloatArray vertices, Color tint, Affine2 transform, float x, float y, float width, float height) {
+        if (renderCache != null || opaquePass && alphaMask != null && alphaMask.hasOpaque() || variants != null && variants.size > 0) return -1;
+        if (autoUpdate) {
+            update(Gdx.graphics.getDeltaTime(), true);
+        }
+        this.transform = transform;
+        int count = appendVertices(vertices, tint, x, y, width, height);
+        this.transform = null;
+        return count;
+    }
+    
+    /**
+     * Returns the number of vertices written by writeVertices() for the specified size without a clip. This is the most
+     * vertices a clipped TenPatch may write.
+     * @param width
+     * @param height
+     * @return
+     * @see TenPatchDrawable#writeVertices(float[], int, VertexLayout, float, float, float, float)
+     */
+    public int getVertexCount(float width, float height) {
+        return export(0, VertexLayout.SPRITE_BATCH, 0, 0, width, height, null);
+    }
+    
+    private int export(int offset, VertexLayout layout, float x, float y, float width, float height, Rectangle clip) {
+        exportOffset = offset;
+        exportLayout = layout;
+        exportCount = 0;
+        this.clip = clip;
+        try {
+            drawPatches(null, x, y, width, height);
+        } finally {
+            this.clip = null;
+        }
+        return exportCount;
     }
     
     /**
@@ -716,6 +1774,58 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         this.tiling = tiling;
     }
     
+    public boolean isMirrorTiling() {
+        return mirrorTiling;
+    }
+    
+    /**
+     * Specifies if every other tile is mirrored when tiling, so a pattern that is symmetric can be stored as half of
+     * its repeating unit. The texture coordinates of the mirrored tiles are reversed, which costs no extra quads.
+     * @param mirrorTiling
+     * @see TenPatchDrawable#setTiling(boolean)
+     */
+    public void setMirrorTiling(boolean mirrorTiling) {
+        this.mirrorTiling = mirrorTiling;
+    }
+    
+    public boolean isFlipX() {
+        return flipX;
+    }
+    
+    /**
+     * Specifies if the TenPatch is drawn mirrored horizontally, such as for right-to-left layouts. The stretch areas are
+     * mirrored with the region, so they are still specified for the region as it is stored.
+     * @param flipX
+     */
+    public void setFlipX(boolean flipX) {
+        this.flipX = flipX;
+    }
+    
+    public boolean isFlipY() {
+        return flipY;
+    }
+    
+    /**
+     * Specifies if the TenPatch is drawn mirrored vertically. The stretch areas are mirrored with the region, so they
+     * are still specified for the region as it is stored.
+     * @param flipY
+     */
+    public void setFlipY(boolean flipY) {
+        this.flipY = flipY;
+    }
+    
+    /**
+     * Sets both flipX and flipY.
+     * @param flipX
+     * @param flipY
+     * @see TenPatchDrawable#setFlipX(boolean)
+     * @see TenPatchDrawable#setFlipY(boolean)
+     */
+    public void setFlip(boolean flipX, boolean flipY) {
+        this.flipX = flipX;
+        this.flipY = flipY;
+    }
+    
     public float getOffsetX() {
         return offsetX;
     }
@@ -886,6 +1996,20 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         setColor4(color4);
     }
     
+    /**
+     * Sets the region. The min size of an AtlasRegion packed with its transparent margins stripped is the size of the
+     * original image.
+     * @param region
+     */
+    @Override
+    public void setRegion(TextureRegion region) {
+        super.setRegion(region);
+        if (region != null) {
+            setMinWidth(getOriginalWidth(region));
+            setMinHeight(getOriginalHeight(region));
+        }
+    }
+    
     public Array<TextureRegion> getRegions() {
         return regions;
     }
@@ -899,6 +2023,34 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         this.regions = regions;
     }
     
+    public Array<TextureRegion> getVariants() {
+        return variants;
+    }
+    
+    /**
+     * Specify lower and higher resolution versions of the region. When drawn, the version whose resolution is
+     * closest to the scale on screen is used, so small TenPatches do not sample full resolution art and large
+     * TenPatches are not blurred. The resolution of a variant is its size divided by the size of the region and the
+     * stretch areas are scaled to it. Variants are drawn at the same size as the region and do not apply to animation
+     * frames. The scale on screen is measured against the size of the back buffer, so in a FrameBuffer of another size
+     * the variant is chosen as if the projection covered the screen. The render cache uses the variant chosen for the
+     * screen.
+     * @param variants The variants of the region. Can be null.
+     */
+    public void setVariants(Array<TextureRegion> variants) {
+        this.variants = variants;
+    }
+    
+    /**
+     * Adds a lower or higher resolution version of the region.
+     * @param variant
+     * @see TenPatchDrawable#setVariants(Array)
+     */
+    public void addVariant(TextureRegion variant) {
+        if (variants == null) variants = new Array<TextureRegion>();
+        variants.add(variant);
+    }
+    
     public float getFrameDuration() {
         return frameDuration;
     }
@@ -908,26 +2060,36 @@ public class TenPatchDrawable extends TextureRegionDrawable {
     }
     
     public TextureRegion getKeyFrame(float time) {
+        return regions.get(getKeyFrameIndex(time));
+    }
+    
+    /**
+     * Returns the index in the regions of the animation frame at the specified time.
+     * @param time
+     * @return
+     * @see TenPatchDrawable#getKeyFrame(float)
+     */
+    public int getKeyFrameIndex(float time) {
         switch (playMode) {
             case PlayMode.REVERSED:
                 int index = (int) (time / frameDuration);
-                return regions.get(regions.size - 1 - (index < regions.size ? index : regions.size - 1));
+                return regions.size - 1 - (index < regions.size ? index : regions.size - 1);
             case PlayMode.LOOP:
-                return regions.get((int) (time / frameDuration) % regions.size);
+                return (int) (time / frameDuration) % regions.size;
             case PlayMode.LOOP_REVERSED:
-                return regions.get(regions.size - 1 - (int) (time / frameDuration) % regions.size);
+                return regions.size - 1 - (int) (time / frameDuration) % regions.size;
             case PlayMode.LOOP_PINGPONG:
                 index = (int) (time / frameDuration);
                 index = index % ((regions.size * 2) - 2);
                 if (index >= regions.size) index = regions.size - 2 - (index - regions.size);
-                return regions.get(index);
+                return index;
             case PlayMode.LOOP_RANDOM:
                 index = (int) (time / frameDuration);
                 randomXS128.setSeed(seed + index);
-                return regions.get(randomXS128.nextInt(regions.size));
+                return randomXS128.nextInt(regions.size);
             default:
                 index = (int) (time / frameDuration);
-                return regions.get(index < regions.size ? index : regions.size - 1);
+                return index < regions.size ? index : regions.size - 1;
         }
     }
     
@@ -979,6 +2141,173 @@ public class TenPatchDrawable extends TextureRegionDrawable {
         this.crushMode = crushMode;
     }
     
+    public boolean isContinuousGradient() {
+        return continuousGradient;
+    }
+    
+    /**
+     * Specifies if color1, color2, color3, and color4 are blended across the whole drawable instead of across each
+     * patch. This allows a PolygonBatch to draw the gradient as a single mesh.
+     * @param continuousGradient
+     * @see TenPatchDrawable#setColors(Color, Color, Color, Color)
+     */
+    public void setContinuousGradient(boolean continuousGradient) {
+        this.continuousGradient = continuousGradient;
+    }
+    
+    public TenPatchRenderCache getRenderCache() {
+        return renderCache;
+    }
+    
+    /**
+     * Sets the cache used to render this drawable once into a FrameBuffer and draw it as a single quad on later frames.
+     * If tileFallback is TileFallback.CACHE, the cache is only used when the tile budget is exceeded. Animated
+     * drawables and drawables that reach outside of their bounds are never cached. The drawable is drawn normally
+     * until it has been drawn at the same size for the stable frames of the cache. The images of this drawable are
+     * evicted from the previous cache.
+     * @param renderCache Can be null to disable caching.
+     * @see TileFallback#CACHE
+     * @see TenPatchDrawable#isAnimated()
+     * @see TenPatchRenderCache#evict(TenPatchDrawable)
+     */
+    public void setRenderCache(TenPatchRenderCache renderCache) {
+        if (this.renderCache != null && this.renderCache != renderCache) this.renderCache.evict(this);
+        this.renderCache = renderCache;
+    }
+    
+    public TenPatchAlphaMask getAlphaMask() {
+        return alphaMask;
+    }
+    
+    /**
+     * Sets the alpha mask of the region. Cells that are completely transparent are not drawn. The cells are classified
+     * with the mask again whenever either axis is laid out again. The mask is ignored while an animation frame it was
+     * not created for is displayed.
+     * @param alphaMask Can be null to draw every cell.
+     * @see TenPatchAlphaMask
+     */
+    public void setAlphaMask(TenPatchAlphaMask alphaMask) {
+        this.alphaMask = alphaMask;
+    }
+    
+    public boolean isOpaquePass() {
+        return opaquePass;
+    }
+    
+    /**
+     * If true and an alpha mask that records opaque pixels is set, cells that are completely opaque are drawn first
+     * with blending disabled, which saves fill rate on large drawables. Toggling blending flushes the batch twice per draw, so this is only worth it
+     * for drawables that cover a large part of the screen. Every cell is blended while the batch color, the color, or a
+     * corner color is translucent, such as when a widget is faded out.
+     * @param opaquePass
+     * @see TenPatchDrawable#setAlphaMask(TenPatchAlphaMask)
+     * @see TenPatchAlphaMask#hasOpaque()
+     */
+    public void setOpaquePass(boolean opaquePass) {
+        this.opaquePass = opaquePass;
+    }
+    
+    /**
+     * Returns whether the appearance of this drawable changes over time because of an offset speed or animation
+     * regions.
+     * @return
+     * @see TenPatchDrawable#setOffsetSpeed(float, float)
+     * @see TenPatchDrawable#setRegions(Array)
+     */
+    public boolean isAnimated() {
+        return offsetXspeed != 0 || offsetYspeed != 0 || regions != null && regions.size > 1;
+    }
+    
+    public int getLayoutCacheSize() {
+        return layoutCacheSize;
+    }
+    
+    /**
+     * Sets the number of layouts kept per axis. A drawable shared by many widgets of different sizes reuses the
+     * layout of every recently drawn size instead of calculating it again.
+     * @param layoutCacheSize The number of widths and the number of heights remembered. Minimum of 1.
+     * @see TenPatchDrawable#getLayoutCacheHitRate()
+     */
+    public void setLayoutCacheSize(int layoutCacheSize) {
+        this.layoutCacheSize = layoutCacheSize;
+    }
+    
+    /**
+     * Returns the number of draws that reused cached layouts for both axes.
+     * @return
+     * @see TenPatchDrawable#setLayoutCacheSize(int)
+     */
+    public int getLayoutCacheHits() {
+        return layoutCacheHits;
+    }
+    
+    /**
+     * Returns the number of draws that had to lay out at least one axis.
+     * @return
+     * @see TenPatchDrawable#setLayoutCacheSize(int)
+     */
+    public int getLayoutCacheMisses() {
+        return layoutCacheMisses;
+    }
+    
+    /**
+     * Returns the fraction of draws that reused cached layouts for both axes.
+     * @return A value between 0 and 1. 0 if the drawable has not been drawn.
+     * @see TenPatchDrawable#setLayoutCacheSize(int)
+     */
+    public float getLayoutCacheHitRate() {
+        int total = layoutCacheHits + layoutCacheMisses;
+        return total == 0 ? 0 : (float) layoutCacheHits / total;
+    }
+    
+    /**
+     * Resets the layout cache hits and misses to 0.
+     */
+    public void resetLayoutCacheStats() {
+        layoutCacheHits = 0;
+        layoutCacheMisses = 0;
+    }
+    
+    /**
+     * Sets the store consulted before calculating a layout that is not in the layout cache.
+     * @see TenPatchLayoutStore#add(TenPatchDrawable)
+     */
+    void setAxisStore(TenPatchAxisCache.Store store) {
+        horizontalAxes.store = store;
+        verticalAxes.store = store;
+    }
+    
+    public int getTileBudget() {
+        return tileBudget;
+    }
+    
+    /**
+     * Sets the maximum number of quads this drawable may submit in a single draw when tiling. If the budget would be
+     * exceeded, the tileFallback strategy is used instead. This keeps the frame time bounded when a tiling drawable is
+     * drawn very large or with a very small scale. The default of -1 uses defaultTileBudget, which is 0 and disables
+     * the limit unless it is changed.
+     * @param tileBudget The maximum number of quads. 0 disables the limit. A negative value uses defaultTileBudget.
+     * @see TenPatchDrawable#defaultTileBudget
+     * @see TenPatchDrawable#setTileFallback(int)
+     */
+    public void setTileBudget(int tileBudget) {
+        this.tileBudget = tileBudget;
+    }
+    
+    public int getTileFallback() {
+        return tileFallback;
+    }
+    
+    /**
+     * Sets the strategy used when drawing would exceed the tile budget.
+     * @param tileFallback
+     * @see TileFallback
+     * @see TenPatchDrawable#setTileBudget(int)
+     */
+    public void setTileFallback(int tileFallback) {
+        this.tileFallback = tileFallback;
+    }
+    
     /**
      * Multiplies the X and Y scaling by the specified amount.
      *
@@ -0,0 +1,378 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps the layouts calculated by TenPatchDrawables between runs of the
+ * application. Every combination of stretch areas, region size, scale, and draw
+ * size that the added drawables lay out is recorded. save() writes the
+ * recorded layouts to a binary file, typically a local file when the
+ * application exits. On the next launch, load() reads the file into memory and
+ * the added drawables read their layouts from it instead of calculating them.
+ * Only the keys are parsed when loading. The spans of a layout are parsed the
+ * first time it is used. The file is read into a heap buffer rather than
+ * memory mapped, because some platforms, such as Windows, don't allow
+ * replacing a file while it is mapped.
+ * 
+ * The file starts with a version number. Files of another version or that
+ * can't be read are ignored, so the layouts are calculated again and the file
+ * is replaced by the next save(). A layout read from the file is the same as
+ * the calculated layout, so drawing is not affected either way.
+ * 
+ * Not available on GWT. The loaded file is not kept open, so save() may replace
+ * it.
+ * @author Raymond Buckley
+ */
+public class TenPatchLayoutStore {
+    private static final int MAGIC = 0x54504c53;
+    /**
+     * Six floats and a boolean.
+     */
+    private static final int SPAN_BYTES = 25;
+    /**
+     * Increase when the format of the file or the results of TenPatchAxis#layout() change.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The maximum number of layouts recorded. Layouts used after the limit is reached are calculated as usual but not
+     * saved.
+     */
+    public int maxLayouts = 4096;
+    private final ObjectMap<Key, TenPatchAxis> layouts = new ObjectMap<Key, TenPatchAxis>();
+    private final ObjectIntMap<Key> index = new ObjectIntMap<Key>();
+    private final Key lookup = new Key();
+    private ByteBuffer buffer;
+    private int hits, misses;
+    
+    private final TenPatchAxisCache.Store store = new TenPatchAxisCache.Store() {
+        @Override
+        public boolean read(TenPatchAxis axis, int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+            synchronized (TenPatchLayoutStore.this) {
+                lookup.set(stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize);
+                TenPatchAxis layout = layouts.get(lookup);
+                if (layout != null) {
+                    axis.set(layout);
+                    hits++;
+                    return true;
+                }
+                
+                int position = index.get(lookup, -1);
+                if (position == -1) return false;
+                try {
+                    readSpans(axis, position);
+                } catch (BufferUnderflowException e) {
+                    index.remove(lookup, -1);
+                    return false;
+                }
+                hits++;
+                put(axis);
+                return true;
+            }
+        }
+        
+        @Override
+        public void record(TenPatchAxis axis, int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+            synchronized (TenPatchLayoutStore.this) {
+                misses++;
+                lookup.set(stretchAreas, regionSize, scale, drawSize, crushMode, coord1, coord2, inset, normalize);
+                if (!layouts.containsKey(lookup)) put(axis);
+            }
+        }
+        
+        private void put(TenPatchAxis axis) {
+            if (layouts.size >= maxLayouts) return;
+            TenPatchAxis copy = new TenPatchAxis();
+            copy.set(axis);
+            layouts.put(new Key(lookup), copy);
+        }
+    };
+    
+    /**
+     * Records the layouts of the drawable and reads them from the loaded file. Drawables copied with
+     * TenPatchDrawable#set(TenPatchDrawable) use the same store.
+     */
+    public void add(TenPatchDrawable drawable) {
+        drawable.setAxisStore(store);
+    }
+    
+    /**
+     * Adds every TenPatchDrawable in the skin.
+     * @see TenPatchLayoutStore#add(TenPatchDrawable)
+     */
+    public void add(Skin skin) {
+        ObjectMap<String, TenPatchDrawable> tenPatches = skin.getAll(TenPatchDrawable.class);
+        if (tenPatches == null) return;
+        for (TenPatchDrawable drawable : tenPatches.values()) {
+            add(drawable);
+        }
+    }
+    
+    /**
+     * Stops recording and reading the layouts of the drawable.
+     */
+    public void remove(TenPatchDrawable drawable) {
+        drawable.setAxisStore(null);
+    }
+    
+    /**
+     * Reads a file written by save() into memory and reads the keys of its layouts. Replaces the previously loaded
+     * file.
+     * @return false if the file doesn't exist, is of another version, or can't be read. No layouts are loaded.
+     */
+    public synchronized boolean load(FileHandle file) {
+        buffer = null;
+        index.clear();
+        if (!file.exists()) return false;
+        
+        //the file is read into memory instead of mapped, so it isn't held open and can be replaced by save()
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(file.readBytes());
+        } catch (GdxRuntimeException e) {
+            return false;
+        }
+        
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return false;
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                Key key = new Key();
+                key.read(buffer);
+                index.put(key, buffer.position());
+                int spans = buffer.getInt();
+                if (spans < 0) throw new BufferUnderflowException();
+                buffer.position(buffer.position() + spans * SPAN_BYTES + 8);
+            }
+        } catch (BufferUnderflowException e) {
+            index.clear();
+            return false;
+        } catch (IllegalArgumentException e) {
+            index.clear();
+            return false;
+        }
+        this.buffer = buffer;
+        return true;
+    }
+    
+    private void readSpans(TenPatchAxis axis, int position) {
+        ByteBuffer buffer = this.buffer.duplicate();
+        buffer.position(position);
+        int count = buffer.getInt();
+        Key key = lookup;
+        axis.restore(key.stretchAreas, key.regionSize, key.scale, key.drawSize, key.crushMode, key.coord1, key.coord2,
+                key.inset, key.normalize, count);
+        for (int i = 0; i < count; i++) {
+            axis.position[i] = buffer.getFloat();
+            axis.size[i] = buffer.getFloat();
+            axis.texStart[i] = buffer.getFloat();
+            axis.texEnd[i] = buffer.getFloat();
+            axis.coordStart[i] = buffer.getFloat();
+            axis.coordEnd[i] = buffer.getFloat();
+            axis.stretch[i] = buffer.get() != 0;
+        }
+        axis.totalStretch = buffer.getFloat();
+        axis.extra = buffer.getFloat();
+    }
+    
+    /**
+     * Writes the layouts used since this store was created or cleared to the file. Layouts in the loaded file that
+     * were not used are not written.
+     */
+    public synchronized void save(FileHandle file) {
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(layouts.size);
+            for (ObjectMap.Entry<Key, TenPatchAxis> entry : layouts.entries()) {
+                entry.key.write(output);
+                TenPatchAxis axis = entry.value;
+                output.writeInt(axis.count);
+                for (int i = 0; i < axis.count; i++) {
+                    output.writeFloat(axis.position[i]);
+                    output.writeFloat(axis.size[i]);
+                    output.writeFloat(axis.texStart[i]);
+                    output.writeFloat(axis.texEnd[i]);
+                    output.writeFloat(axis.coordStart[i]);
+                    output.writeFloat(axis.coordEnd[i]);
+                    output.writeBoolean(axis.stretch[i]);
+                }
+                output.writeFloat(axis.totalStretch);
+                output.writeFloat(axis.extra);
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing TenPatch layouts: " + file, e);
+        } finally {
+            StreamUtils.closeQuietly(output);
+        }
+    }
+    
+    /**
+     * Forgets the recorded layouts and the loaded file and resets the statistics.
+     */
+    public synchronized void clear() {
+        layouts.clear();
+        index.clear();
+        buffer = null;
+        hits = 0;
+        misses = 0;
+    }
+    
+    /**
+     * Returns the number of layouts that will be written by save().
+     */
+    public synchronized int getLayoutCount() {
+        return layouts.size;
+    }
+    
+    /**
+     * Returns the number of layouts in the loaded file.
+     */
+    public synchronized int getLoadedCount() {
+        return index.size;
+    }
+    
+    /**
+     * Returns the number of layouts that were read from the store instead of calculated.
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+    
+    /**
+     * Returns the number of layouts that were calculated because they were not in the store.
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+    
+    private static class Key {
+        int[] stretchAreas;
+        float regionSize, scale, drawSize, coord1, coord2, inset;
+        int crushMode;
+        boolean normalize;
+        
+        Key() {
+        }
+        
+        Key(Key other) {
+            stretchAreas = Arrays.copyOf(other.stretchAreas, other.stretchAreas.length);
+            regionSize = other.regionSize;
+            scale = other.scale;
+            drawSize = other.drawSize;
+            crushMode = other.crushMode;
+            coord1 = other.coord1;
+            coord2 = other.coord2;
+            inset = other.inset;
+            normalize = other.normalize;
+        }
+        
+        void set(int[] stretchAreas, float regionSize, float scale, float drawSize, int crushMode, float coord1, float coord2, float inset, boolean normalize) {
+            this.stretchAreas = stretchAreas;
+            this.regionSize = regionSize;
+            this.scale = scale;
+            this.drawSize = drawSize;
+            this.crushMode = crushMode;
+            this.coord1 = coord1;
+            this.coord2 = coord2;
+            this.inset = inset;
+            this.normalize = normalize;
+        }
+        
+        void read(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() / 4) throw new BufferUnderflowException();
+            stretchAreas = new int[length];
+            for (int i = 0; i < length; i++) {
+                stretchAreas[i] = buffer.getInt();
+            }
+            regionSize = buffer.getFloat();
+            scale = buffer.getFloat();
+            drawSize = buffer.getFloat();
+            crushMode = buffer.getInt();
+            coord1 = buffer.getFloat();
+            coord2 = buffer.getFloat();
+            inset = buffer.getFloat();
+            normalize = buffer.get() != 0;
+        }
+        
+        void write(DataOutputStream output) throws IOException {
+            output.writeInt(stretchAreas.length);
+            for (int i = 0; i < stretchAreas.length; i++) {
+                output.writeInt(stretchAreas[i]);
+            }
+            output.writeFloat(regionSize);
+            output.writeFloat(scale);
+            output.writeFloat(drawSize);
+            output.writeInt(crushMode);
+            output.writeFloat(coord1);
+            output.writeFloat(coord2);
+            output.writeFloat(inset);
+            output.writeBoolean(normalize);
+        }
+        
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) return false;
+            Key other = (Key) object;
+            //floats are compared by their bits like in hashCode(), so 0 and -0 are different keys
+            return Float.floatToIntBits(drawSize) == Float.floatToIntBits(other.drawSize)
+                    && Float.floatToIntBits(scale) == Float.floatToIntBits(other.scale)
+                    && Float.floatToIntBits(regionSize) == Float.floatToIntBits(other.regionSize)
+                    && crushMode == other.crushMode
+                    && Float.floatToIntBits(coord1) == Float.floatToIntBits(other.coord1)
+                    && Float.floatToIntBits(coord2) == Float.floatToIntBits(other.coord2)
+                    && Float.floatToIntBits(inset) == Float.floatToIntBits(other.inset) && normalize == other.normalize
+                    && Arrays.equals(stretchAreas, other.stretchAreas);
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = Arrays.hashCode(stretchAreas);
+            hash = 31 * hash + Float.floatToIntBits(regionSize);
+            hash = 31 * hash + Float.floatToIntBits(scale);
+            hash = 31 * hash + Float.floatToIntBits(drawSize);
+            hash = 31 * hash + crushMode;
+            hash = 31 * hash + Float.floatToIntBits(coord1);
+            hash = 31 * hash + Float.floatToIntBits(coord2);
+            hash = 31 * hash + Float.floatToIntBits(inset);
+            return 31 * hash + (normalize ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A TenPatchSystem that writes the vertices of its instances on a pool of
+ * threads. The instances are split into one range per thread and each range is
+ * written by its own Emitter. The vertices are then submitted to the batch on
+ * the calling thread in the order of the instances, so the result is the same
+ * as TenPatchSystem. Systems with fewer instances than MIN_RANGE_SIZE per
+ * thread are drawn on the calling thread. This class is not available on GWT.
+ * @author Raymond Buckley
+ */
+public class TenPatchParallelSystem extends TenPatchSystem implements Disposable {
+    /**
+     * The minimum number of instances written by each thread.
+     */
+    public static final int MIN_RANGE_SIZE = 512;
+    
+    private final int threads;
+    private ExecutorService executor;
+    private Emitter[] emitters = new Emitter[0];
+    private final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    private final Color tint = new Color();
+    
+    /**
+     * Creates a TenPatchParallelSystem that uses one thread per available processor.
+     */
+    public TenPatchParallelSystem() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param threads The maximum number of threads used to write the vertices. 1 writes on the calling thread only.
+     */
+    public TenPatchParallelSystem(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    @Override
+    public void draw(Batch batch, int start, int end) {
+        int ranges = Math.min(threads, (end - start) / MIN_RANGE_SIZE);
+        if (ranges <= 1) {
+            super.draw(batch, start, end);
+            return;
+        }
+        
+        if (executor == null) executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TenPatchParallelSystem");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (emitters.length < ranges) {
+            Emitter[] newEmitters = new Emitter[ranges];
+            System.arraycopy(emitters, 0, newEmitters, 0, emitters.length);
+            for (int i = emitters.length; i < ranges; i++) {
+                newEmitters[i] = new Emitter(this);
+            }
+            emitters = newEmitters;
+        }
+        
+        tint.set(batch.getColor());
+        futures.clear();
+        for (int i = 0; i < ranges; i++) {
+            final Emitter emitter = emitters[i];
+            emitter.updateDefinitions();
+            final int rangeStart = start + (end - start) * i / ranges;
+            final int rangeEnd = start + (end - start) * (i + 1) / ranges;
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    emitter.emit(rangeStart, rangeEnd, tint);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < ranges; i++) {
+                futures.get(i).get();
+                emitters[i].draw(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while drawing a TenPatchSystem.", e);
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException("Error drawing a TenPatchSystem.", e.getCause());
+        }
+    }
+    
+    /**
+     * Returns the maximum number of threads used to write the vertices.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Shuts down the threads.
+     */
+    @Override
+    public void dispose() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
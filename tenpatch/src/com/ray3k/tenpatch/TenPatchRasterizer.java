@@ -0,0 +1,366 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.NumberUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Renders TenPatchDrawables into Pixmaps on the CPU. This is intended for
+ * tools and build servers that generate thumbnails, previews, or pre-rendered
+ * textures, and as a reference to compare the output of the batch against.
+ * The quads are the same ones the drawable submits to a batch, so crush modes,
+ * tiling, offsets, scale, and colors are all supported. They are rasterized
+ * like OpenGL: pixels are covered if their center is inside a quad, colors are
+ * interpolated across the two triangles of each quad, and the texture is
+ * sampled with the filter of the region's texture. The result is composited
+ * onto the destination with source over blending.
+ * 
+ * The source Pixmap must contain the image of the region's texture. Nothing is
+ * drawn with OpenGL, but the drawable is laid out with the size and filter of
+ * its region's Texture, so a Texture object is still required. Creating one
+ * needs an OpenGL implementation, so without a display use the headless
+ * backend, whose mock OpenGL can create the texture from the same Pixmap. Large
+ * images are split into bands of rows that are rendered by a pool of threads.
+ * A TenPatchRasterizer renders one image at a time. This class is not
+ * available on GWT.
+ * @author Raymond Buckley
+ */
+public class TenPatchRasterizer implements Disposable {
+    /**
+     * Images with fewer rows than this per thread are rendered on the calling thread.
+     */
+    private static final int MIN_BAND_ROWS = 64;
+    
+    private final int threads;
+    private ExecutorService executor;
+    private float[] vertices = new float[0];
+    private int[] sourcePixels = new int[0];
+    
+    /**
+     * Creates a TenPatchRasterizer that uses one thread per available processor.
+     */
+    public TenPatchRasterizer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param threads The maximum number of threads used to render one image. 1 renders on the calling thread only.
+     */
+    public TenPatchRasterizer(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Renders the drawable into a new transparent Pixmap of the given size.
+     * @param drawable
+     * @param source The image of the texture of the drawable's region.
+     * @param width
+     * @param height
+     * @return A new Pixmap in the RGBA8888 format that must be disposed by the caller.
+     * @see TenPatchRasterizer#render(TenPatchDrawable, Pixmap, Pixmap, float, float, float, float)
+     */
+    public Pixmap render(TenPatchDrawable drawable, Pixmap source, int width, int height) {
+        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        pixmap.setColor(0, 0, 0, 0);
+        pixmap.fill();
+        render(drawable, source, pixmap, 0, 0, width, height);
+        return pixmap;
+    }
+    
+    /**
+     * Renders the drawable onto the destination at the given position and size. As with a batch, the position is
+     * measured from the bottom left corner of the destination. The animation and offset of the drawable are not
+     * updated. The drawable must not be drawn by another thread at the same time.
+     * @param drawable
+     * @param source The image of the texture of the drawable's region.
+     * @param destination Must be in the RGBA8888 format.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    public void render(TenPatchDrawable drawable, Pixmap source, Pixmap destination, float x, float y, float width, float height) {
+        if (destination.getFormat() != Pixmap.Format.RGBA8888) {
+            throw new IllegalArgumentException("The destination Pixmap must be in the RGBA8888 format.");
+        }
+        
+        int vertexCount = drawable.getVertexCount(width, height);
+        int length = vertexCount * TenPatchDrawable.VertexLayout.SPRITE_BATCH.stride;
+        if (vertices.length < length) vertices = new float[length];
+        vertexCount = drawable.writeVertices(vertices, 0, TenPatchDrawable.VertexLayout.SPRITE_BATCH, x, y, width, height);
+        
+        Texture texture = drawable.getRegion().getTexture();
+        boolean linear = texture.getMagFilter() == Texture.TextureFilter.Linear || texture.getMinFilter() == Texture.TextureFilter.Linear;
+        readSource(source);
+        
+        final Raster raster = new Raster(vertices, vertexCount / 4, sourcePixels, source.getWidth(), source.getHeight(), linear,
+                destination.getPixels(), destination.getWidth(), destination.getHeight());
+        
+        int rows = destination.getHeight();
+        int bands = Math.min(threads, rows / MIN_BAND_ROWS);
+        if (bands <= 1) {
+            raster.render(0, rows);
+            return;
+        }
+        
+        if (executor == null) executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TenPatchRasterizer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(bands);
+        for (int i = 0; i < bands; i++) {
+            final int start = rows * i / bands;
+            final int end = rows * (i + 1) / bands;
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    raster.render(start, end);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while rendering a TenPatch.", e);
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException("Error rendering a TenPatch.", e.getCause());
+        }
+    }
+    
+    /**
+     * Copies the source into an array of RGBA8888 pixels.
+     */
+    private void readSource(Pixmap source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (sourcePixels.length < width * height) sourcePixels = new int[width * height];
+        int[] pixels = sourcePixels;
+        if (source.getFormat() == Pixmap.Format.RGBA8888) {
+            ByteBuffer buffer = source.getPixels();
+            for (int i = 0, n = width * height; i < n; i++) {
+                int index = i * 4;
+                pixels[i] = (buffer.get(index) & 0xff) << 24 | (buffer.get(index + 1) & 0xff) << 16
+                        | (buffer.get(index + 2) & 0xff) << 8 | buffer.get(index + 3) & 0xff;
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    pixels[y * width + x] = source.getPixel(x, y);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of threads used to render one image.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Stops the threads of this rasterizer.
+     */
+    @Override
+    public void dispose() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+    
+    /**
+     * The quads and images of one render call. Bands of rows can be rendered concurrently because each writes only
+     * its own rows.
+     */
+    private static class Raster {
+        private final float[] vertices;
+        private final int quads;
+        private final int[] source;
+        private final int sourceWidth, sourceHeight;
+        private final boolean linear;
+        private final ByteBuffer destination;
+        private final int destinationWidth, destinationHeight;
+        
+        Raster(float[] vertices, int quads, int[] source, int sourceWidth, int sourceHeight, boolean linear,
+               ByteBuffer destination, int destinationWidth, int destinationHeight) {
+            this.vertices = vertices;
+            this.quads = quads;
+            this.source = source;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.linear = linear;
+            this.destination = destination;
+            this.destinationWidth = destinationWidth;
+            this.destinationHeight = destinationHeight;
+        }
+        
+        /**
+         * Renders the quads into the rows from start to end, exclusive. Rows are counted from the top.
+         */
+        void render(int start, int end) {
+            float[] sample = new float[4];
+            for (int quad = 0; quad < quads; quad++) {
+                //vertices are in the order bottom left, top left, top right, bottom right
+                int i = quad * 20;
+                float x1 = vertices[i], y1 = vertices[i + 1];
+                float x2 = vertices[i + 10], y2 = vertices[i + 11];
+                float u1 = vertices[i + 3], v1 = vertices[i + 4];
+                float u2 = vertices[i + 8], v2 = vertices[i + 9];
+                float u3 = vertices[i + 13], v3 = vertices[i + 14];
+                float u4 = vertices[i + 18], v4 = vertices[i + 19];
+                int color1 = NumberUtils.floatToIntColor(vertices[i + 2]);
+                int color2 = NumberUtils.floatToIntColor(vertices[i + 7]);
+                int color3 = NumberUtils.floatToIntColor(vertices[i + 12]);
+                int color4 = NumberUtils.floatToIntColor(vertices[i + 17]);
+                
+                //pixels whose centers are inside the quad
+                int left = Math.max((int) Math.ceil(x1 - .5f), 0);
+                int right = Math.min((int) Math.ceil(x2 - .5f), destinationWidth);
+                int top = Math.max((int) Math.floor(destinationHeight - y2 - .5f) + 1, start);
+                int bottom = Math.min((int) Math.floor(destinationHeight - y1 - .5f) + 1, end);
+                
+                //the texture coordinates are interpolated from all four corners, because the texture of a rotated
+                //region runs along the other axis of the quad
+                for (int row = top; row < bottom; row++) {
+                    float fy = (destinationHeight - row - .5f - y1) / (y2 - y1);
+                    float leftU = u1 + (u2 - u1) * fy, leftV = v1 + (v2 - v1) * fy;
+                    float rightU = u4 + (u3 - u4) * fy, rightV = v4 + (v3 - v4) * fy;
+                    for (int column = left; column < right; column++) {
+                        float fx = (column + .5f - x1) / (x2 - x1);
+                        float texU = leftU + (rightU - leftU) * fx;
+                        float texV = leftV + (rightV - leftV) * fx;
+                        if (linear) {
+                            sampleLinear(texU, texV, sample);
+                        } else {
+                            sampleNearest(texU, texV, sample);
+                        }
+                        
+                        //the quad is drawn as the triangles bottom left, top left, top right and top right, bottom right, bottom left
+                        float r, g, b, a;
+                        if (fy >= fx) {
+                            r = interpolate(color1, color2, color3, 0, fx, fy);
+                            g = interpolate(color1, color2, color3, 8, fx, fy);
+                            b = interpolate(color1, color2, color3, 16, fx, fy);
+                            a = interpolate(color1, color2, color3, 24, fx, fy);
+                        } else {
+                            r = interpolate(color1, color4, color3, 0, fy, fx);
+                            g = interpolate(color1, color4, color3, 8, fy, fx);
+                            b = interpolate(color1, color4, color3, 16, fy, fx);
+                            a = interpolate(color1, color4, color3, 24, fy, fx);
+                        }
+                        blend(row * destinationWidth + column, sample[0] * r, sample[1] * g, sample[2] * b, sample[3] * a);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Interpolates one channel of the packed ABGR colors across a triangle with a right angle at the second
+         * corner. along is the position from the first to the second corner and across is the position from the
+         * second to the third corner.
+         */
+        private static float interpolate(int first, int second, int third, int shift, float across, float along) {
+            float c1 = (first >>> shift & 0xff) / 255f;
+            float c2 = (second >>> shift & 0xff) / 255f;
+            float c3 = (third >>> shift & 0xff) / 255f;
+            return c1 + (c2 - c1) * along + (c3 - c2) * across;
+        }
+        
+        private void sampleNearest(float u, float v, float[] sample) {
+            int x = clamp((int) Math.floor(u * sourceWidth), sourceWidth);
+            int y = clamp((int) Math.floor(v * sourceHeight), sourceHeight);
+            int pixel = source[y * sourceWidth + x];
+            sample[0] = (pixel >>> 24) / 255f;
+            sample[1] = (pixel >>> 16 & 0xff) / 255f;
+            sample[2] = (pixel >>> 8 & 0xff) / 255f;
+            sample[3] = (pixel & 0xff) / 255f;
+        }
+        
+        private void sampleLinear(float u, float v, float[] sample) {
+            float sx = u * sourceWidth - .5f;
+            float sy = v * sourceHeight - .5f;
+            int x = (int) Math.floor(sx);
+            int y = (int) Math.floor(sy);
+            float fx = sx - x;
+            float fy = sy - y;
+            int x1 = clamp(x, sourceWidth), x2 = clamp(x + 1, sourceWidth);
+            int y1 = clamp(y, sourceHeight), y2 = clamp(y + 1, sourceHeight);
+            int p11 = source[y1 * sourceWidth + x1], p21 = source[y1 * sourceWidth + x2];
+            int p12 = source[y2 * sourceWidth + x1], p22 = source[y2 * sourceWidth + x2];
+            for (int channel = 0; channel < 4; channel++) {
+                int shift = 24 - channel * 8;
+                float top = (p11 >>> shift & 0xff) + ((p21 >>> shift & 0xff) - (p11 >>> shift & 0xff)) * fx;
+                float bottom = (p12 >>> shift & 0xff) + ((p22 >>> shift & 0xff) - (p12 >>> shift & 0xff)) * fx;
+                sample[channel] = (top + (bottom - top) * fy) / 255f;
+            }
+        }
+        
+        private static int clamp(int value, int size) {
+            return value < 0 ? 0 : value >= size ? size - 1 : value;
+        }
+        
+        /**
+         * Composites a color over the destination pixel.
+         */
+        private void blend(int pixel, float r, float g, float b, float a) {
+            int index = pixel * 4;
+            float dr = (destination.get(index) & 0xff) / 255f;
+            float dg = (destination.get(index + 1) & 0xff) / 255f;
+            float db = (destination.get(index + 2) & 0xff) / 255f;
+            float da = (destination.get(index + 3) & 0xff) / 255f;
+            float outA = a + da * (1 - a);
+            if (outA > 0) {
+                float dstWeight = da * (1 - a);
+                destination.put(index, (byte) Math.round((r * a + dr * dstWeight) / outA * 255));
+                destination.put(index + 1, (byte) Math.round((g * a + dg * dstWeight) / outA * 255));
+                destination.put(index + 2, (byte) Math.round((b * a + db * dstWeight) / outA * 255));
+            }
+            destination.put(index + 3, (byte) Math.round(outA * 255));
+        }
+    }
+}
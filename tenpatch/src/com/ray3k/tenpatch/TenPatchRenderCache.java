@@ -0,0 +1,404 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IdentityMap;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Renders expensive TenPatchDrawables once into a FrameBuffer and draws them
+ * as a single quad on later frames. This is useful for large, tiled, or
+ * gradient colored drawables that look the same every frame. Each drawable
+ * keeps a single image. A drawable is only cached after it has been drawn at
+ * the same size for several frames, so a widget that is being resized or a
+ * drawable shared by widgets of different sizes is drawn normally. The cached
+ * image is rendered again automatically if the color, size, offset, region,
+ * texture filter, resolution variant, scale, or stretch areas of the drawable
+ * change. It is rendered into the same FrameBuffer if the new image fits.
+ * Animated drawables are never cached.
+ * 
+ * The least recently used images are disposed when the memory used by the
+ * FrameBuffers exceeds the budget. The cache references every drawable drawn
+ * with it, so evict a drawable that is no longer used or remove the
+ * cache from it with setRenderCache(null). The contents of the FrameBuffers
+ * are lost when the OpenGL context is lost, so call clear() when the
+ * application is resumed on Android. When drawing to another FrameBuffer, it
+ * is bound again after an image is rendered, but the resolution of the image
+ * is calculated for the screen.
+ * @author Raymond Buckley
+ * @see TenPatchDrawable#setRenderCache(TenPatchRenderCache)
+ */
+public class TenPatchRenderCache implements Disposable {
+    private long budget;
+    private long memoryUsed;
+    private int stableFrames = 3;
+    private final IdentityMap<TenPatchDrawable, Entry> entries = new IdentityMap<TenPatchDrawable, Entry>();
+    /**
+     * The entries ordered from least to most recently used.
+     */
+    private final Array<Entry> usage = new Array<Entry>();
+    private final Matrix4 tempProjection = new Matrix4();
+    private final Matrix4 tempTransform = new Matrix4();
+    private final Matrix4 cacheProjection = new Matrix4();
+    private final Matrix4 identity = new Matrix4();
+    private final Color tempColor = new Color();
+    private final IntBuffer viewport = BufferUtils.newIntBuffer(16);
+    private final IntBuffer framebuffer = BufferUtils.newIntBuffer(16);
+    
+    /**
+     * Creates a TenPatchRenderCache with a budget of 16 megabytes.
+     */
+    public TenPatchRenderCache() {
+        this(16 * 1024 * 1024);
+    }
+    
+    /**
+     * @param budget The maximum number of bytes of GPU memory used by the FrameBuffers of this cache.
+     */
+    public TenPatchRenderCache(long budget) {
+        this.budget = budget;
+    }
+    
+    /**
+     * Draws the cached image of the drawable, rendering it first if it is missing or out of date.
+     * @param transform The transform applied to the drawable. Can be null.
+     * @return false if the drawable can't be cached and must be drawn normally.
+     */
+    boolean draw(TenPatchDrawable drawable, Batch batch, float x, float y, float width, float height, Affine2 transform) {
+        if (width <= 0 || height <= 0 || drawable.isAnimated()) return false;
+        
+        Entry entry = entries.get(drawable);
+        if (entry == null) {
+            entry = new Entry();
+            entry.drawable = drawable;
+            entries.put(drawable, entry);
+        } else {
+            usage.removeValue(entry, true);
+        }
+        usage.add(entry);
+        
+        //the size is only counted once per frame, so drawing at several sizes in one frame is never stable
+        long frame = Gdx.graphics.getFrameId();
+        if (entry.width != width || entry.height != height) {
+            entry.width = width;
+            entry.height = height;
+            entry.frame = frame;
+            entry.stableFrames = 1;
+        } else if (entry.frame != frame) {
+            entry.frame = frame;
+            if (entry.stableFrames < stableFrames) entry.stableFrames++;
+        }
+        if (entry.stableFrames < stableFrames) return false;
+        
+        //the size of the FrameBuffer in pixels depends on the projection of the batch
+        tempProjection.set(batch.getProjectionMatrix()).mul(batch.getTransformMatrix());
+        float[] val = tempProjection.val;
+        float pixelScaleX = (float) Math.sqrt(val[Matrix4.M00] * val[Matrix4.M00] + val[Matrix4.M10] * val[Matrix4.M10]) * Gdx.graphics.getBackBufferWidth() / 2f;
+        float pixelScaleY = (float) Math.sqrt(val[Matrix4.M01] * val[Matrix4.M01] + val[Matrix4.M11] * val[Matrix4.M11]) * Gdx.graphics.getBackBufferHeight() / 2f;
+        if (transform != null) {
+            pixelScaleX *= (float) Math.sqrt(transform.m00 * transform.m00 + transform.m10 * transform.m10);
+            pixelScaleY *= (float) Math.sqrt(transform.m01 * transform.m01 + transform.m11 * transform.m11);
+        }
+        int pixelWidth = MathUtils.ceil(width * pixelScaleX);
+        int pixelHeight = MathUtils.ceil(height * pixelScaleY);
+        long bytes = (long) pixelWidth * pixelHeight * 4;
+        if (pixelWidth <= 0 || pixelHeight <= 0 || bytes > budget) return false;
+        
+        boolean outdated = entry.pixelWidth != pixelWidth || entry.pixelHeight != pixelHeight
+                || entry.imageWidth != width || entry.imageHeight != height || !entry.matches(drawable);
+        if (entry.frameBuffer == null || pixelWidth > entry.frameBuffer.getWidth() || pixelHeight > entry.frameBuffer.getHeight()) {
+            disposeFrameBuffer(entry);
+            evict(bytes, entry);
+            entry.frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, pixelWidth, pixelHeight, false);
+            entry.region = new TextureRegion(entry.frameBuffer.getColorBufferTexture());
+            memoryUsed += bytes;
+            outdated = true;
+        }
+        if (outdated) render(entry, drawable, batch, width, height, pixelWidth, pixelHeight);
+        
+        if (transform != null) {
+            batch.draw(entry.region, width, height, transform);
+        } else {
+            batch.draw(entry.region, x, y, width, height);
+        }
+        return true;
+    }
+    
+    /**
+     * Renders the drawable into the bottom left corner of the FrameBuffer of the entry. Blending is disabled because the
+     * cells of a TenPatch never overlap. This keeps the alpha of the image identical to the alpha of the drawable.
+     */
+    private void render(Entry entry, TenPatchDrawable drawable, Batch batch, float width, float height, int pixelWidth,
+                        int pixelHeight) {
+        batch.flush();
+        tempProjection.set(batch.getProjectionMatrix());
+        tempTransform.set(batch.getTransformMatrix());
+        tempColor.set(batch.getColor());
+        boolean blending = batch.isBlendingEnabled();
+        viewport.clear();
+        Gdx.gl.glGetIntegerv(GL20.GL_VIEWPORT, viewport);
+        framebuffer.clear();
+        Gdx.gl.glGetIntegerv(GL20.GL_FRAMEBUFFER_BINDING, framebuffer);
+        boolean scissors = Gdx.gl.glIsEnabled(GL20.GL_SCISSOR_TEST);
+        
+        entry.frameBuffer.begin();
+        if (scissors) Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
+        Gdx.gl.glClearColor(0, 0, 0, 0);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        FrameBuffer frameBuffer = entry.frameBuffer;
+        batch.setProjectionMatrix(cacheProjection.setToOrtho2D(0, 0, width * frameBuffer.getWidth() / pixelWidth,
+                height * frameBuffer.getHeight() / pixelHeight));
+        batch.setTransformMatrix(identity);
+        batch.setColor(Color.WHITE);
+        batch.disableBlending();
+        drawable.drawToCache(batch, width, height);
+        batch.flush();
+        entry.frameBuffer.end(viewport.get(0), viewport.get(1), viewport.get(2), viewport.get(3));
+        //end() binds the screen, which may not have been the target of the batch
+        Gdx.gl.glBindFramebuffer(GL20.GL_FRAMEBUFFER, framebuffer.get(0));
+        if (scissors) Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
+        
+        if (blending) batch.enableBlending();
+        batch.setColor(tempColor);
+        batch.setTransformMatrix(tempTransform);
+        batch.setProjectionMatrix(tempProjection);
+        
+        Texture.TextureFilter filter = pixelWidth == width && pixelHeight == height ? Texture.TextureFilter.Nearest : Texture.TextureFilter.Linear;
+        frameBuffer.getColorBufferTexture().setFilter(filter, filter);
+        entry.region.setRegion(0, 0, pixelWidth, pixelHeight);
+        entry.region.flip(false, true);
+        entry.pixelWidth = pixelWidth;
+        entry.pixelHeight = pixelHeight;
+        entry.imageWidth = width;
+        entry.imageHeight = height;
+        entry.capture(drawable);
+    }
+    
+    /**
+     * Disposes the least recently used images until the specified number of bytes fit within the budget.
+     * @param keep The entry that is not removed. Can be null.
+     */
+    private void evict(long bytes, Entry keep) {
+        for (int i = 0; i < usage.size && memoryUsed + bytes > budget;) {
+            Entry entry = usage.get(i);
+            if (entry == keep || entry.frameBuffer == null) {
+                i++;
+            } else {
+                remove(entry);
+            }
+        }
+    }
+    
+    private void remove(Entry entry) {
+        disposeFrameBuffer(entry);
+        usage.removeValue(entry, true);
+        entries.remove(entry.drawable);
+    }
+    
+    private void disposeFrameBuffer(Entry entry) {
+        if (entry.frameBuffer != null) {
+            memoryUsed -= (long) entry.frameBuffer.getWidth() * entry.frameBuffer.getHeight() * 4;
+            entry.frameBuffer.dispose();
+            entry.frameBuffer = null;
+            entry.pixelWidth = 0;
+            entry.pixelHeight = 0;
+        }
+    }
+    
+    /**
+     * Removes the cached image of the specified drawable and disposes its FrameBuffer. The cache no longer references
+     * the drawable afterwards.
+     * @param drawable
+     */
+    public void evict(TenPatchDrawable drawable) {
+        Entry entry = entries.get(drawable);
+        if (entry != null) remove(entry);
+    }
+    
+    /**
+     * Removes all cached images and disposes their FrameBuffers.
+     */
+    public void clear() {
+        for (Entry entry : usage) {
+            disposeFrameBuffer(entry);
+        }
+        usage.clear();
+        entries.clear();
+    }
+    
+    public long getBudget() {
+        return budget;
+    }
+    
+    /**
+     * Sets the maximum number of bytes of GPU memory used by the FrameBuffers of this cache. The least recently used
+     * images are disposed immediately if the new budget is exceeded.
+     * @param budget
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        evict(0, null);
+    }
+    
+    public int getStableFrames() {
+        return stableFrames;
+    }
+    
+    /**
+     * Sets the number of consecutive frames a drawable must be drawn at the same size before it is cached. The
+     * default is 3.
+     * @param stableFrames
+     */
+    public void setStableFrames(int stableFrames) {
+        this.stableFrames = stableFrames;
+    }
+    
+    /**
+     * Returns the number of bytes of GPU memory currently used by the FrameBuffers of this cache.
+     * @return
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+    
+    /**
+     * Returns the number of cached images.
+     * @return
+     */
+    public int getSize() {
+        int size = 0;
+        for (Entry entry : usage) {
+            if (entry.frameBuffer != null) size++;
+        }
+        return size;
+    }
+    
+    @Override
+    public void dispose() {
+        clear();
+    }
+    
+    /**
+     * A cached image and the state of the drawable it was rendered with.
+     */
+    private static class Entry {
+        TenPatchDrawable drawable;
+        /**
+         * The size drawn at in the most recent frame and the number of consecutive frames it was drawn at.
+         */
+        float width, height;
+        long frame;
+        int stableFrames;
+        
+        FrameBuffer frameBuffer;
+        TextureRegion region;
+        float imageWidth, imageHeight;
+        int pixelWidth, pixelHeight;
+        
+        final Color color = new Color();
+        Color color1, color2, color3, color4;
+        float offsetX, offsetY, scaleX, scaleY;
+        TextureRegion source, drawnRegion;
+        float u, v, u2, v2;
+        Texture.TextureFilter minFilter, magFilter;
+        int[] horizontalStretchAreas, verticalStretchAreas;
+        boolean tiling, mirrorTiling, flipX, flipY, continuousGradient;
+        int crushMode;
+        
+        void capture(TenPatchDrawable drawable) {
+            color.set(drawable.getColor());
+            color1 = copy(drawable.getColor1(), color1);
+            color2 = copy(drawable.getColor2(), color2);
+            color3 = copy(drawable.getColor3(), color3);
+            color4 = copy(drawable.getColor4(), color4);
+            offsetX = drawable.offsetX;
+            offsetY = drawable.offsetY;
+            scaleX = drawable.scaleX;
+            scaleY = drawable.scaleY;
+            source = drawable.getRegion();
+            drawnRegion = drawable.getDrawnRegion();
+            u = drawnRegion.getU();
+            v = drawnRegion.getV();
+            u2 = drawnRegion.getU2();
+            v2 = drawnRegion.getV2();
+            minFilter = drawnRegion.getTexture().getMinFilter();
+            magFilter = drawnRegion.getTexture().getMagFilter();
+            horizontalStretchAreas = copy(drawable.horizontalStretchAreas, horizontalStretchAreas);
+            verticalStretchAreas = copy(drawable.verticalStretchAreas, verticalStretchAreas);
+            tiling = drawable.tiling;
+            mirrorTiling = drawable.mirrorTiling;
+            flipX = drawable.flipX;
+            flipY = drawable.flipY;
+            continuousGradient = drawable.continuousGradient;
+            crushMode = drawable.crushMode;
+        }
+        
+        boolean matches(TenPatchDrawable drawable) {
+            TextureRegion region = drawable.getDrawnRegion();
+            Texture texture = region.getTexture();
+            return color.equals(drawable.getColor()) && equals(color1, drawable.getColor1())
+                    && equals(color2, drawable.getColor2()) && equals(color3, drawable.getColor3())
+                    && equals(color4, drawable.getColor4()) && offsetX == drawable.offsetX
+                    && offsetY == drawable.offsetY && scaleX == drawable.scaleX && scaleY == drawable.scaleY
+                    && source == drawable.getRegion() && drawnRegion == region && minFilter == texture.getMinFilter()
+                    && magFilter == texture.getMagFilter() && u == region.getU() && v == region.getV() && u2 == region.getU2()
+                    && v2 == region.getV2() && tiling == drawable.tiling && mirrorTiling == drawable.mirrorTiling
+                    && flipX == drawable.flipX && flipY == drawable.flipY
+                    && continuousGradient == drawable.continuousGradient && crushMode == drawable.crushMode
+                    && Arrays.equals(horizontalStretchAreas, drawable.horizontalStretchAreas)
+                    && Arrays.equals(verticalStretchAreas, drawable.verticalStretchAreas);
+        }
+        
+        private static boolean equals(Color color, Color other) {
+            return color == null ? other == null : color.equals(other);
+        }
+        
+        private static Color copy(Color source, Color destination) {
+            if (source == null) return null;
+            return destination == null ? new Color(source) : destination.set(source);
+        }
+        
+        private static int[] copy(int[] source, int[] destination) {
+            if (destination == null || destination.length != source.length) destination = new int[source.length];
+            System.arraycopy(source, 0, destination, 0, source.length);
+            return destination;
+        }
+    }
+}
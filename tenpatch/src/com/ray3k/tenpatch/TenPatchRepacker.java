@@ -0,0 +1,583 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * Copies the animation frames of TenPatchDrawables onto shared texture pages
+ * at load time. Frames taken from several textures or atlas pages make the
+ * batch bind a new texture whenever the frame changes. After repacking, every
+ * frame of the added drawables is on as few pages as fit, so the frames of one
+ * animation and the frames of animations added together can be drawn without
+ * switching textures. The regions of each drawable are replaced by the packed
+ * copies. The original textures are not modified or disposed.
+ * 
+ * The pixels are read back from the TextureData of the original textures, so
+ * they must be loaded from a file or from a Pixmap that is not disposed yet.
+ * The memory used by the textures of the frames is measured before and after
+ * repacking. Repacking can't be undone and the pages are owned by the
+ * TenPatchRepacker, so it must not be disposed while the drawables are used.
+ * 
+ * With setCollapseStretchAreas(true), stretch areas whose pixels are the same
+ * along the stretch axis, such as the plain middle of a bar, are shrunk to a
+ * single pixel before packing and the stretch areas of the drawable are
+ * adjusted, so the drawable looks the same while using less texture memory.
+ * @author Raymond Buckley
+ * @see TenPatchBatch for drawing frames from several textures without repacking.
+ */
+public class TenPatchRepacker implements Disposable {
+    private final PixmapPacker packer;
+    private final Array<TenPatchDrawable> drawables = new Array<TenPatchDrawable>();
+    private TextureAtlas atlas;
+    private int packedFrames;
+    private boolean collapseStretchAreas;
+    private int collapsedDrawables;
+    private long collapsedPixels;
+    private int texturesBefore, texturesAfter;
+    private long memoryBefore, memoryAfter;
+    
+    /**
+     * Creates a TenPatchRepacker with 1024 x 1024 RGBA8888 pages and 2 pixels of padding.
+     */
+    public TenPatchRepacker() {
+        this(1024, 1024, 2);
+    }
+    
+    /**
+     * @param pageWidth
+     * @param pageHeight
+     * @param padding The number of pixels between frames. The edges of each frame are copied into the padding, so
+     *                linear filtering does not sample the neighbouring frames.
+     */
+    public TenPatchRepacker(int pageWidth, int pageHeight, int padding) {
+        packer = new PixmapPacker(pageWidth, pageHeight, Pixmap.Format.RGBA8888, padding, padding > 0);
+    }
+    
+    /**
+     * Adds a drawable to be repacked. Drawables without animation regions are ignored unless stretch areas are
+     * collapsed, in which case their region is repacked as a single frame.
+     * @param drawable
+     * @see TenPatchRepacker#setCollapseStretchAreas(boolean)
+     */
+    public void add(TenPatchDrawable drawable) {
+        if ((hasRegions(drawable) || collapseStretchAreas && drawable.getRegion() != null) && !drawables.contains(drawable, true)) {
+            drawables.add(drawable);
+        }
+    }
+    
+    /**
+     * Adds every TenPatchDrawable of the skin that has animation regions.
+     * @param skin
+     */
+    public void add(Skin skin) {
+        ObjectMap<String, TenPatchDrawable> tenPatches = skin.getAll(TenPatchDrawable.class);
+        if (tenPatches == null) return;
+        for (TenPatchDrawable drawable : tenPatches.values()) {
+            add(drawable);
+        }
+    }
+    
+    /**
+     * Packs the frames of all added drawables onto new pages and replaces the regions of the drawables with the
+     * packed copies. Frames shared between drawables are packed once. Drawables added afterwards are packed by the
+     * next call onto new pages.
+     * @param minFilter The filter of the new pages.
+     * @param magFilter The filter of the new pages.
+     */
+    public void pack(TextureFilter minFilter, TextureFilter magFilter) {
+        if (drawables.size == 0) return;
+        
+        //measure the textures the frames are on before repacking
+        ObjectSet<Texture> sources = new ObjectSet<Texture>();
+        IdentityMap<TextureRegion, TenPatchDrawable> users = new IdentityMap<TextureRegion, TenPatchDrawable>();
+        ObjectSet<TextureRegion> shared = new ObjectSet<TextureRegion>();
+        for (TenPatchDrawable drawable : drawables) {
+            for (TextureRegion region : getFrames(drawable)) {
+                sources.add(region.getTexture());
+                TenPatchDrawable user = users.get(region);
+                if (user == null) {
+                    users.put(region, drawable);
+                } else if (user != drawable) {
+                    shared.add(region);
+                }
+            }
+        }
+        texturesBefore = sources.size;
+        memoryBefore = 0;
+        for (Texture texture : sources) {
+            memoryBefore += getMemory(texture);
+        }
+        
+        //copy each frame out of its texture and pack it
+        ObjectMap<Texture, Pixmap> pixmaps = new ObjectMap<Texture, Pixmap>();
+        ObjectSet<Pixmap> ownedPixmaps = new ObjectSet<Pixmap>();
+        IdentityMap<TextureRegion, String> names = new IdentityMap<TextureRegion, String>();
+        IdentityMap<TenPatchDrawable, Collapse> collapses = new IdentityMap<TenPatchDrawable, Collapse>();
+        Array<TextureRegion> frameRegions = new Array<TextureRegion>();
+        Array<Pixmap> frames = new Array<Pixmap>();
+        try {
+            for (TenPatchDrawable drawable : drawables) {
+                for (TextureRegion region : getFrames(drawable)) {
+                    if (names.containsKey(region) || frameRegions.contains(region, true)) continue;
+                    Pixmap source = pixmaps.get(region.getTexture());
+                    if (source == null) {
+                        source = readPixmap(region.getTexture(), ownedPixmaps);
+                        pixmaps.put(region.getTexture(), source);
+                    }
+                    frameRegions.add(region);
+                    frames.add(copyFrame(source, region));
+                }
+                
+                //frames shared with other drawables are packed as they are, because their stretch areas may differ
+                Collapse collapse = null;
+                if (collapseStretchAreas && frameRegions.size == getFrames(drawable).size && canCollapse(drawable, frameRegions, shared)) {
+                    collapse = Collapse.find(drawable, frames);
+                    if (collapse != null) {
+                        collapses.put(drawable, collapse);
+                        collapsedDrawables++;
+                    }
+                }
+                
+                for (int i = 0; i < frames.size; i++) {
+                    Pixmap frame = frames.get(i);
+                    if (collapse != null) {
+                        Pixmap collapsed = collapse.apply(frame);
+                        collapsedPixels += (long) frame.getWidth() * frame.getHeight() - (long) collapsed.getWidth() * collapsed.getHeight();
+                        frame.dispose();
+                        frame = collapsed;
+                        frames.set(i, frame);
+                    }
+                    String name = "frame" + packedFrames++;
+                    names.put(frameRegions.get(i), name);
+                    packer.pack(name, frame);
+                }
+                for (Pixmap frame : frames) {
+                    frame.dispose();
+                }
+                frames.clear();
+                frameRegions.clear();
+            }
+        } finally {
+            for (Pixmap frame : frames) {
+                frame.dispose();
+            }
+            for (Pixmap pixmap : ownedPixmaps) {
+                pixmap.dispose();
+            }
+        }
+        
+        if (atlas == null) {
+            atlas = packer.generateTextureAtlas(minFilter, magFilter, false);
+        } else {
+            packer.updateTextureAtlas(atlas, minFilter, magFilter, false);
+        }
+        
+        //point the drawables at the packed copies
+        IdentityMap<TextureRegion, TextureRegion> packed = new IdentityMap<TextureRegion, TextureRegion>();
+        for (IdentityMap.Entry<TextureRegion, String> entry : names.entries()) {
+            TextureRegion region;
+            if (TenPatchDrawable.isStripped(entry.key) || TenPatchDrawable.isRotated(entry.key)) {
+                //keep the rotation and the stripped margins, which are flipped again along with the region
+                AtlasRegion original = (AtlasRegion) entry.key;
+                AtlasRegion atlasRegion = new AtlasRegion(atlas.findRegion(entry.value));
+                atlasRegion.rotate = original.rotate;
+                atlasRegion.packedWidth = original.packedWidth;
+                atlasRegion.packedHeight = original.packedHeight;
+                atlasRegion.originalWidth = original.originalWidth;
+                atlasRegion.originalHeight = original.originalHeight;
+                atlasRegion.offsetX = original.isFlipX() ? original.originalWidth - original.offsetX - original.getRotatedPackedWidth() : original.offsetX;
+                atlasRegion.offsetY = original.isFlipY() ? original.originalHeight - original.offsetY - original.getRotatedPackedHeight() : original.offsetY;
+                region = atlasRegion;
+            } else {
+                region = new TextureRegion(atlas.findRegion(entry.value));
+            }
+            region.flip(entry.key.isFlipX(), entry.key.isFlipY());
+            packed.put(entry.key, region);
+        }
+        for (TenPatchDrawable drawable : drawables) {
+            if (hasRegions(drawable)) {
+                Array<TextureRegion> regions = drawable.getRegions();
+                Array<TextureRegion> newRegions = new Array<TextureRegion>(regions.size);
+                for (TextureRegion region : regions) {
+                    newRegions.add(packed.get(region));
+                }
+                drawable.setRegions(newRegions);
+            }
+            Collapse collapse = collapses.get(drawable);
+            if (collapse != null) {
+                drawable.setHorizontalStretchAreas(collapse.horizontalAreas);
+                drawable.setVerticalStretchAreas(collapse.verticalAreas);
+            }
+            
+            TextureRegion region = packed.get(drawable.getRegion());
+            if (region != null) {
+                float minWidth = drawable.getMinWidth();
+                float minHeight = drawable.getMinHeight();
+                drawable.setRegion(region);
+                drawable.setMinWidth(minWidth);
+                drawable.setMinHeight(minHeight);
+            }
+        }
+        drawables.clear();
+        
+        texturesAfter = atlas.getTextures().size;
+        memoryAfter = 0;
+        for (Texture texture : atlas.getTextures()) {
+            memoryAfter += getMemory(texture);
+        }
+    }
+    
+    private static boolean hasRegions(TenPatchDrawable drawable) {
+        return drawable.getRegions() != null && drawable.getRegions().size > 0;
+    }
+    
+    /**
+     * Returns the animation regions of the drawable or, if it is not animated, its region.
+     */
+    private static Array<TextureRegion> getFrames(TenPatchDrawable drawable) {
+        if (hasRegions(drawable)) return drawable.getRegions();
+        Array<TextureRegion> frames = new Array<TextureRegion>(1);
+        frames.add(drawable.getRegion());
+        return frames;
+    }
+    
+    /**
+     * Returns true if the stretch areas of the drawable may be collapsed. Tiled stretch areas would be drawn with many
+     * more tiles, resolution variants are laid out with stretch areas scaled from the original ones, and shared frames
+     * must keep the layout of every drawable that uses them. Stripped, rotated, and flipped regions are not collapsed.
+     */
+    private static boolean canCollapse(TenPatchDrawable drawable, Array<TextureRegion> frames, ObjectSet<TextureRegion> shared) {
+        if (drawable.tiling || drawable.getVariants() != null && drawable.getVariants().size > 0) return false;
+        TextureRegion first = frames.first();
+        for (TextureRegion region : frames) {
+            if (shared.contains(region) || TenPatchDrawable.isStripped(region) || TenPatchDrawable.isRotated(region)
+                    || region.isFlipX() || region.isFlipY() || region.getRegionWidth() != first.getRegionWidth()
+                    || region.getRegionHeight() != first.getRegionHeight()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * The columns and rows of a frame that are kept when its uniform stretch areas are collapsed, and the stretch
+     * areas of the collapsed frame.
+     */
+    private static class Collapse {
+        /**
+         * The kept columns as the source column, destination column, and number of columns of each run.
+         */
+        IntArray columns = new IntArray();
+        /**
+         * The kept rows as the source row, destination row, and number of rows of each run. Rows are counted from the
+         * top of the frame.
+         */
+        IntArray rows = new IntArray();
+        int width, height;
+        int[] horizontalAreas, verticalAreas;
+        
+        /**
+         * Returns how the frames of the drawable can be collapsed or null if neither axis can be. An axis is collapsed
+         * only if every stretch area of the axis is uniform in every frame. The stretch areas keep their proportions,
+         * because their sizes are divided by their greatest common divisor, so the layout at every size is unchanged.
+         */
+        static Collapse find(TenPatchDrawable drawable, Array<Pixmap> frames) {
+            Pixmap first = frames.first();
+            int[] horizontalSizes = getCollapsedSizes(drawable.getHorizontalStretchAreas(), first.getWidth(), frames, true);
+            int[] verticalSizes = getCollapsedSizes(drawable.getVerticalStretchAreas(), first.getHeight(), frames, false);
+            if (horizontalSizes == null && verticalSizes == null) return null;
+            
+            Collapse collapse = new Collapse();
+            collapse.horizontalAreas = drawable.getHorizontalStretchAreas();
+            collapse.verticalAreas = drawable.getVerticalStretchAreas();
+            collapse.width = first.getWidth();
+            collapse.height = first.getHeight();
+            if (horizontalSizes == null) {
+                collapse.columns.addAll(0, 0, first.getWidth());
+            } else {
+                collapse.horizontalAreas = new int[horizontalSizes.length * 2];
+                collapse.width = collapse(drawable.getHorizontalStretchAreas(), horizontalSizes, first.getWidth(), collapse.columns, collapse.horizontalAreas);
+            }
+            if (verticalSizes == null) {
+                collapse.rows.addAll(0, 0, first.getHeight());
+            } else {
+                //vertical stretch areas are counted from the bottom of the frame
+                collapse.verticalAreas = new int[verticalSizes.length * 2];
+                IntArray runs = new IntArray();
+                collapse.height = collapse(drawable.getVerticalStretchAreas(), verticalSizes, first.getHeight(), runs, collapse.verticalAreas);
+                for (int i = runs.size - 3; i >= 0; i -= 3) {
+                    int length = runs.get(i + 2);
+                    collapse.rows.addAll(first.getHeight() - runs.get(i) - length, collapse.height - runs.get(i + 1) - length, length);
+                }
+            }
+            return collapse;
+        }
+        
+        /**
+         * Returns the size each stretch area collapses to or null if the axis can't be collapsed.
+         * @param horizontal Whether the stretch areas are columns, otherwise they are rows counted from the bottom.
+         */
+        private static int[] getCollapsedSizes(int[] areas, int size, Array<Pixmap> frames, boolean horizontal) {
+            if (areas == null || areas.length == 0 || areas.length % 2 != 0) return null;
+            int divisor = 0;
+            int previous = -1;
+            for (int i = 0; i < areas.length; i += 2) {
+                int start = areas[i];
+                int end = areas[i + 1];
+                if (start <= previous || end < start || end >= size) return null;
+                previous = end;
+                for (Pixmap frame : frames) {
+                    if (!isUniform(frame, horizontal ? start : size - 1 - end, horizontal ? end : size - 1 - start, horizontal)) return null;
+                }
+                divisor = gcd(divisor, end - start + 1);
+            }
+            if (divisor <= 1) return null;
+            
+            int[] sizes = new int[areas.length / 2];
+            for (int i = 0; i < areas.length; i += 2) {
+                sizes[i / 2] = (areas[i + 1] - areas[i] + 1) / divisor;
+            }
+            return sizes;
+        }
+        
+        /**
+         * Returns true if the columns or rows from start to end, inclusive, are identical.
+         */
+        private static boolean isUniform(Pixmap frame, int start, int end, boolean columns) {
+            int length = columns ? frame.getHeight() : frame.getWidth();
+            for (int i = start + 1; i <= end; i++) {
+                for (int j = 0; j < length; j++) {
+                    if (columns ? frame.getPixel(i, j) != frame.getPixel(start, j) : frame.getPixel(j, i) != frame.getPixel(j, start)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        private static int gcd(int a, int b) {
+            while (b != 0) {
+                int remainder = a % b;
+                a = b;
+                b = remainder;
+            }
+            return a;
+        }
+        
+        /**
+         * Adds the kept runs of one axis and writes the collapsed stretch areas.
+         * @return The collapsed size of the axis.
+         */
+        private static int collapse(int[] areas, int[] sizes, int size, IntArray runs, int[] collapsedAreas) {
+            int source = 0;
+            int destination = 0;
+            for (int i = 0; i < areas.length; i += 2) {
+                //the fixed pixels before the stretch area and the first pixels of the stretch area form one run
+                int length = areas[i] - source + sizes[i / 2];
+                runs.addAll(source, destination, length);
+                collapsedAreas[i] = destination + areas[i] - source;
+                destination += length;
+                collapsedAreas[i + 1] = destination - 1;
+                source = areas[i + 1] + 1;
+            }
+            if (source < size) runs.addAll(source, destination, size - source);
+            return destination + size - source;
+        }
+        
+        /**
+         * Returns a new Pixmap with the kept columns and rows of the frame.
+         */
+        Pixmap apply(Pixmap frame) {
+            Pixmap collapsed = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+            collapsed.setBlending(Pixmap.Blending.None);
+            for (int row = 0; row < rows.size; row += 3) {
+                for (int column = 0; column < columns.size; column += 3) {
+                    collapsed.drawPixmap(frame, columns.get(column + 1), rows.get(row + 1), columns.get(column),
+                            rows.get(row), columns.get(column + 2), rows.get(row + 2));
+                }
+            }
+            return collapsed;
+        }
+    }
+    
+    /**
+     * Returns the pixels of the texture. Pixmaps that have to be disposed after use are added to ownedPixmaps.
+     */
+    private Pixmap readPixmap(Texture texture, ObjectSet<Pixmap> ownedPixmaps) {
+        TextureData data = texture.getTextureData();
+        if (data.getType() != TextureData.TextureDataType.Pixmap) {
+            throw new GdxRuntimeException("Can't repack frames of a texture that is not loaded from a file or Pixmap.");
+        }
+        if (!data.isPrepared()) data.prepare();
+        Pixmap pixmap = data.consumePixmap();
+        
+        //a Texture created from a Pixmap keeps the Pixmap, which is usually disposed by the caller after uploading
+        if (pixmap.isDisposed()) {
+            throw new GdxRuntimeException("Can't repack frames of a texture whose Pixmap has been disposed.");
+        }
+        if (data.disposePixmap()) ownedPixmaps.add(pixmap);
+        return pixmap;
+    }
+    
+    /**
+     * Copies the pixels of the region into a new Pixmap. Flipped regions are copied unflipped.
+     */
+    private Pixmap copyFrame(Pixmap source, TextureRegion region) {
+        int x = Math.round(Math.min(region.getU(), region.getU2()) * source.getWidth());
+        int y = Math.round(Math.min(region.getV(), region.getV2()) * source.getHeight());
+        int width = region.getRegionWidth();
+        int height = region.getRegionHeight();
+        Pixmap frame = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        frame.setBlending(Pixmap.Blending.None);
+        frame.drawPixmap(source, 0, 0, x, y, width, height);
+        return frame;
+    }
+    
+    /**
+     * Returns the approximate number of bytes of GPU memory used by the texture, not counting mipmaps.
+     */
+    private static long getMemory(Texture texture) {
+        int bytesPerPixel;
+        switch (texture.getTextureData().getFormat()) {
+            case Alpha:
+            case Intensity:
+                bytesPerPixel = 1;
+                break;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                bytesPerPixel = 2;
+                break;
+            case RGB888:
+                bytesPerPixel = 3;
+                break;
+            default:
+                bytesPerPixel = 4;
+        }
+        return (long) texture.getWidth() * texture.getHeight() * bytesPerPixel;
+    }
+    
+    /**
+     * Returns the number of distinct textures the frames were on before the last pack().
+     * @return
+     */
+    public int getTexturesBefore() {
+        return texturesBefore;
+    }
+    
+    /**
+     * Returns the bytes of GPU memory used by the textures the frames were on before the last pack(). These textures
+     * may still be used by other regions, so this memory is not necessarily freed.
+     * @return
+     */
+    public long getMemoryBefore() {
+        return memoryBefore;
+    }
+    
+    /**
+     * Returns the number of pages created by all calls to pack().
+     * @return
+     */
+    public int getTexturesAfter() {
+        return texturesAfter;
+    }
+    
+    /**
+     * Returns the bytes of GPU memory used by the pages created by all calls to pack().
+     * @return
+     */
+    public long getMemoryAfter() {
+        return memoryAfter;
+    }
+    
+    public boolean isCollapseStretchAreas() {
+        return collapseStretchAreas;
+    }
+    
+    /**
+     * Specifies if stretch areas that are uniform along their stretch axis are collapsed when packed. The stretch areas
+     * of a drawable are collapsed if every stretch area of an axis is the same in every frame, the drawable is not
+     * tiling, and its frames are not shared with other drawables. Drawables without animation regions are only added
+     * while this is enabled.
+     * @param collapseStretchAreas
+     */
+    public void setCollapseStretchAreas(boolean collapseStretchAreas) {
+        this.collapseStretchAreas = collapseStretchAreas;
+    }
+    
+    /**
+     * Returns the number of drawables whose stretch areas were collapsed by all calls to pack().
+     * @return
+     */
+    public int getCollapsedDrawables() {
+        return collapsedDrawables;
+    }
+    
+    /**
+     * Returns the number of pixels removed from frames by collapsing stretch areas in all calls to pack().
+     * @return
+     */
+    public long getCollapsedPixels() {
+        return collapsedPixels;
+    }
+    
+    /**
+     * Returns a summary of the memory used before and after the last pack().
+     * @return
+     */
+    public String getReport() {
+        return "Repacked " + packedFrames + " frames from " + texturesBefore + " textures (" + memoryBefore / 1024 + " KB) onto "
+                + texturesAfter + " pages (" + memoryAfter / 1024 + " KB)."
+                + (collapsedDrawables > 0 ? " Collapsed the stretch areas of " + collapsedDrawables + " drawables, removing "
+                + collapsedPixels + " pixels." : "");
+    }
+    
+    /**
+     * Disposes the pages. The repacked drawables can no longer be drawn.
+     */
+    @Override
+    public void dispose() {
+        if (atlas != null) {
+            atlas.dispose();
+            atlas = null;
+        }
+        packer.dispose();
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.scenes.scene2d.utils.BaseDrawable;
+import com.badlogic.gdx.scenes.scene2d.utils.TransformDrawable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A drawable made of several TenPatchDrawables layered on top of each other,
+ * such as a background fill, a border, a gloss, and a state overlay. Each
+ * layer is inset from the bounds of the stack and tinted by its own color.
+ * 
+ * The vertices of all layers are written in order into one array and
+ * submitted with one call per run of consecutive layers that share a texture,
+ * so a stack whose layers are on the same atlas page is a single batch call
+ * instead of one per layer. Layers that use the render cache, the opaque
+ * pass, or resolution variants are drawn to the batch separately in their
+ * place.
+ * @author Raymond Buckley
+ */
+public class TenPatchStack extends BaseDrawable implements TransformDrawable {
+    private final Array<Layer> layers = new Array<Layer>();
+    private final FloatArray vertices = new FloatArray(1024);
+    /**
+     * The texture of each run of consecutive layers that share a texture.
+     */
+    private final Array<Texture> textures = new Array<Texture>();
+    /**
+     * The index in vertices where each run ends.
+     */
+    private final IntArray ends = new IntArray();
+    private final Color tint = new Color();
+    private final Color batchColor = new Color();
+    private final Affine2 tempTransform = new Affine2();
+    private final Affine2 layerTransform = new Affine2();
+    
+    /**
+     * A TenPatchDrawable in the stack with its insets from the bounds of the stack and its color.
+     */
+    public static class Layer {
+        public TenPatchDrawable drawable;
+        public float left;
+        public float bottom;
+        public float right;
+        public float top;
+        /**
+         * Multiplied with the color of the batch and the colors of the drawable.
+         */
+        public final Color color = new Color(1, 1, 1, 1);
+        
+        public Layer(TenPatchDrawable drawable) {
+            this.drawable = drawable;
+        }
+        
+        public Layer(TenPatchDrawable drawable, float left, float bottom, float right, float top) {
+            this.drawable = drawable;
+            this.left = left;
+            this.bottom = bottom;
+            this.right = right;
+            this.top = top;
+        }
+    }
+    
+    public TenPatchStack() {
+    }
+    
+    public TenPatchStack(TenPatchDrawable... drawables) {
+        for (TenPatchDrawable drawable : drawables) {
+            addLayer(drawable);
+        }
+    }
+    
+    /**
+     * Adds a layer on top of the others that fills the stack.
+     * @param drawable
+     * @return The new layer.
+     */
+    public Layer addLayer(TenPatchDrawable drawable) {
+        return addLayer(new Layer(drawable));
+    }
+    
+    /**
+     * Adds a layer on top of the others inset from the bounds of the stack.
+     * @param drawable
+     * @param left
+     * @param bottom
+     * @param right
+     * @param top
+     * @return The new layer.
+     */
+    public Layer addLayer(TenPatchDrawable drawable, float left, float bottom, float right, float top) {
+        return addLayer(new Layer(drawable, left, bottom, right, top));
+    }
+    
+    /**
+     * Adds the layer on top of the others.
+     * @param layer
+     * @return The layer.
+     */
+    public Layer addLayer(Layer layer) {
+        layers.add(layer);
+        return layer;
+    }
+    
+    public void removeLayer(Layer layer) {
+        layers.removeValue(layer, true);
+    }
+    
+    /**
+     * Returns the layers from the bottom to the top. The layers and their insets may be modified. The min size and
+     * padding of the stack are calculated from them each time they are requested.
+     * @return
+     */
+    public Array<Layer> getLayers() {
+        return layers;
+    }
+    
+    /**
+     * Returns the largest min width of the layers plus their insets. If a larger min width was set, it is returned
+     * instead.
+     */
+    @Override
+    public float getMinWidth() {
+        float minWidth = super.getMinWidth();
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            minWidth = Math.max(minWidth, layer.drawable.getMinWidth() + layer.left + layer.right);
+        }
+        return minWidth;
+    }
+    
+    /**
+     * Returns the largest min height of the layers plus their insets. If a larger min height was set, it is returned
+     * instead.
+     */
+    @Override
+    public float getMinHeight() {
+        float minHeight = super.getMinHeight();
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            minHeight = Math.max(minHeight, layer.drawable.getMinHeight() + layer.bottom + layer.top);
+        }
+        return minHeight;
+    }
+    
+    /**
+     * Returns the largest left padding of the layers plus their insets. If a larger padding was set, it is returned
+     * instead.
+     */
+    @Override
+    public float getLeftWidth() {
+        float leftWidth = super.getLeftWidth();
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            leftWidth = Math.max(leftWidth, layer.drawable.getLeftWidth() + layer.left);
+        }
+        return leftWidth;
+    }
+    
+    /**
+     * Returns the largest right padding of the layers plus their insets. If a larger padding was set, it is returned
+     * instead.
+     */
+    @Override
+    public float getRightWidth() {
+        float rightWidth = super.getRightWidth();
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            rightWidth = Math.max(rightWidth, layer.drawable.getRightWidth() + layer.right);
+        }
+        return rightWidth;
+    }
+    
+    /**
+     * Returns the largest bottom padding of the layers plus their insets. If a larger padding was set, it is returned
+     * instead.
+     */
+    @Override
+    public float getBottomHeight() {
+        float bottomHeight = super.getBottomHeight();
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            bottomHeight = Math.max(bottomHeight, layer.drawable.getBottomHeight() + layer.bottom);
+        }
+        return bottomHeight;
+    }
+    
+    /**
+     * Returns the largest top padding of the layers plus their insets. If a larger padding was set, it is returned
+     * instead.
+     */
+    @Override
+    public float getTopHeight() {
+        float topHeight = super.getTopHeight();
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            topHeight = Math.max(topHeight, layer.drawable.getTopHeight() + layer.top);
+        }
+        return topHeight;
+    }
+    
+    /**
+     * Draws the layers from the bottom to the top.
+     * @param batch
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    @Override
+    public void draw(Batch batch, float x, float y, float width, float height) {
+        draw(batch, null, x, y, width, height);
+    }
+    
+    /**
+     * Draws the layers scaled and rotated around the origin. The vertices are transformed on the CPU.
+     * @see TenPatchDrawable#draw(Batch, float, float, float, float, float, float, float, float, float)
+     */
+    @Override
+    public void draw(Batch batch, float x, float y, float originX, float originY, float width, float height,
+                     float scaleX, float scaleY, float rotation) {
+        if (scaleX == 1 && scaleY == 1 && rotation == 0) {
+            draw(batch, null, x, y, width, height);
+        } else {
+            tempTransform.setToTrnRotScl(x + originX, y + originY, rotation, scaleX, scaleY);
+            tempTransform.translate(-originX, -originY);
+            draw(batch, tempTransform, 0, 0, width, height);
+        }
+    }
+    
+    /**
+     * Draws the layers with the specified transform applied to each vertex. The stack is laid out at 0,0 with the
+     * given width and height before the transform is applied.
+     * @see TenPatchDrawable#draw(Batch, Affine2, float, float)
+     * @param batch
+     * @param transform
+     * @param width
+     * @param height
+     */
+    public void draw(Batch batch, Affine2 transform, float width, float height) {
+        draw(batch, transform, 0, 0, width, height);
+    }
+    
+    private void draw(Batch batch, Affine2 transform, float x, float y, float width, float height) {
+        vertices.clear();
+        textures.clear();
+        ends.clear();
+        batchColor.set(batch.getColor());
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            float layerX = x + layer.left;
+            float layerY = y + layer.bottom;
+            float layerWidth = width - layer.left - layer.right;
+            float layerHeight = height - layer.bottom - layer.top;
+            if (layerWidth <= 0 || layerHeight <= 0) continue;
+            
+            tint.set(batchColor).mul(layer.color);
+            TenPatchDrawable drawable = layer.drawable;
+            int previous = vertices.size;
+            if (drawable.appendLayer(vertices, tint, transform, layerX, layerY, layerWidth, layerHeight) < 0) {
+                //the layer is drawn in its place after the layers below it
+                flush(batch);
+                batch.setColor(tint);
+                if (transform == null) {
+                    drawable.draw(batch, layerX, layerY, layerWidth, layerHeight);
+                } else {
+                    layerTransform.set(transform).translate(layerX, layerY);
+                    drawable.draw(batch, layerTransform, layerWidth, layerHeight);
+                }
+                batch.setColor(batchColor);
+                continue;
+            }
+            if (vertices.size == previous) continue;
+            Texture texture = drawable.getRegion().getTexture();
+            if (textures.size > 0 && textures.peek() == texture) {
+                ends.items[ends.size - 1] = vertices.size;
+            } else {
+                textures.add(texture);
+                ends.add(vertices.size);
+            }
+        }
+        flush(batch);
+    }
+    
+    /**
+     * Submits the vertices written since the last flush.
+     */
+    private void flush(Batch batch) {
+        int start = 0;
+        for (int i = 0; i < textures.size; i++) {
+            int end = ends.get(i);
+            batch.draw(textures.get(i), vertices.items, start, end - start);
+            start = end;
+        }
+        vertices.clear();
+        textures.clear();
+        ends.clear();
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Draws large numbers of TenPatches, such as health bars, tile frames, or list
+ * rows, without an object per instance. A TenPatchDrawable is registered once
+ * as a definition and every instance refers to it by its id. The instances are
+ * stored as parallel arrays of primitives that can be read and written
+ * directly: index i of each array belongs to instance i, up to size.
+ * 
+ * update() advances the time, offsets, and animation frames of all instances
+ * in one loop. draw() writes the vertices of all instances into one array and
+ * submits them to the batch in as few calls as the textures allow. The layout
+ * of each size is cached by the definition, so instances of the same size
+ * share their layout. The vertices can also be written for a range of
+ * instances by an Emitter, so the work can be split between threads with one
+ * Emitter per thread.
+ * @author Raymond Buckley
+ * @see TenPatchParallelSystem
+ */
+public class TenPatchSystem {
+    /**
+     * The number of instances.
+     */
+    public int size;
+    public float[] x;
+    public float[] y;
+    public float[] width;
+    public float[] height;
+    /**
+     * The color of each instance packed with Color.toFloatBits(). The colors of the definition are multiplied by it.
+     */
+    public float[] color;
+    public float[] offsetX;
+    public float[] offsetY;
+    /**
+     * The time of the animation of each instance.
+     */
+    public float[] time;
+    /**
+     * The id of the definition of each instance.
+     */
+    public int[] definition;
+    /**
+     * The index of the animation frame of each instance. Updated by update().
+     */
+    int[] frame;
+    private final Array<TenPatchDrawable> definitions = new Array<TenPatchDrawable>();
+    private TenPatchDrawable[] definitionItems = new TenPatchDrawable[0];
+    private int definitionsVersion;
+    private Emitter emitter;
+    
+    /**
+     * Creates a TenPatchSystem with room for 16 instances.
+     */
+    public TenPatchSystem() {
+        this(16);
+    }
+    
+    /**
+     * @param capacity The number of instances the arrays are created for. They grow as needed.
+     */
+    public TenPatchSystem(int capacity) {
+        capacity = Math.max(1, capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        color = new float[capacity];
+        offsetX = new float[capacity];
+        offsetY = new float[capacity];
+        time = new float[capacity];
+        definition = new int[capacity];
+        frame = new int[capacity];
+    }
+    
+    /**
+     * Registers a drawable as a definition. Its stretch areas, regions, tiling, colors, scale, crush mode, and
+     * offset speed apply to every instance of the definition. Call definitionsChanged() after modifying the
+     * drawable.
+     * @param drawable
+     * @return The id of the definition.
+     */
+    public int addDefinition(TenPatchDrawable drawable) {
+        definitions.add(drawable);
+        definitionsChanged();
+        return definitions.size - 1;
+    }
+    
+    public TenPatchDrawable getDefinition(int id) {
+        return definitions.get(id);
+    }
+    
+    public int getDefinitionCount() {
+        return definitions.size;
+    }
+    
+    /**
+     * Must be called after a definition is modified so that the Emitters copy it again.
+     */
+    public void definitionsChanged() {
+        definitionItems = definitions.toArray(TenPatchDrawable.class);
+        definitionsVersion++;
+    }
+    
+    /**
+     * Adds an instance of a definition with a white color, the offset of the definition, and a time of 0.
+     * @param definition The id of the definition.
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return The index of the instance.
+     */
+    public int add(int definition, float x, float y, float width, float height) {
+        TenPatchDrawable drawable = definitions.get(definition);
+        ensureCapacity(size + 1);
+        int index = size++;
+        this.x[index] = x;
+        this.y[index] = y;
+        this.width[index] = width;
+        this.height[index] = height;
+        color[index] = Color.WHITE_FLOAT_BITS;
+        offsetX[index] = drawable.offsetX;
+        offsetY[index] = drawable.offsetY;
+        time[index] = 0;
+        this.definition[index] = definition;
+        frame[index] = getFrame(drawable, 0);
+        return index;
+    }
+    
+    /**
+     * Removes an instance by moving the last instance into its place.
+     * @param index
+     * @return The index the last instance was moved from, which is now index.
+     */
+    public int remove(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        int last = --size;
+        x[index] = x[last];
+        y[index] = y[last];
+        width[index] = width[last];
+        height[index] = height[last];
+        color[index] = color[last];
+        offsetX[index] = offsetX[last];
+        offsetY[index] = offsetY[last];
+        time[index] = time[last];
+        definition[index] = definition[last];
+        frame[index] = frame[last];
+        return last;
+    }
+    
+    /**
+     * Removes all instances. The definitions are kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+    
+    /**
+     * Grows the arrays so that they can hold at least the specified number of instances.
+     * @param capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) return;
+        capacity = Math.max(capacity, (int) (x.length * 1.75f));
+        x = resize(x, capacity);
+        y = resize(y, capacity);
+        width = resize(width, capacity);
+        height = resize(height, capacity);
+        color = resize(color, capacity);
+        offsetX = resize(offsetX, capacity);
+        offsetY = resize(offsetY, capacity);
+        time = resize(time, capacity);
+        int[] newDefinition = new int[capacity];
+        System.arraycopy(definition, 0, newDefinition, 0, size);
+        definition = newDefinition;
+        int[] newFrame = new int[capacity];
+        System.arraycopy(frame, 0, newFrame, 0, size);
+        frame = newFrame;
+    }
+    
+    private float[] resize(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+    
+    public void setPosition(int index, float x, float y) {
+        this.x[index] = x;
+        this.y[index] = y;
+    }
+    
+    public void setSize(int index, float width, float height) {
+        this.width[index] = width;
+        this.height[index] = height;
+    }
+    
+    public void setBounds(int index, float x, float y, float width, float height) {
+        this.x[index] = x;
+        this.y[index] = y;
+        this.width[index] = width;
+        this.height[index] = height;
+    }
+    
+    public void setColor(int index, Color color) {
+        this.color[index] = color.toFloatBits();
+    }
+    
+    public void setOffset(int index, float offsetX, float offsetY) {
+        this.offsetX[index] = offsetX;
+        this.offsetY[index] = offsetY;
+    }
+    
+    /**
+     * Advances the time of every instance and moves its offset by the offset speed of its definition. The animation
+     * frames are chosen according to the play mode of each definition.
+     * @param delta
+     */
+    public void update(float delta) {
+        TenPatchDrawable[] definitionItems = this.definitionItems;
+        float[] time = this.time, offsetX = this.offsetX, offsetY = this.offsetY;
+        int[] definition = this.definition, frame = this.frame;
+        for (int i = 0, n = size; i < n; i++) {
+            TenPatchDrawable drawable = definitionItems[definition[i]];
+            float instanceTime = time[i] + delta;
+            time[i] = instanceTime;
+            offsetX[i] += drawable.offsetXspeed * delta;
+            offsetY[i] += drawable.offsetYspeed * delta;
+            frame[i] = getFrame(drawable, instanceTime);
+        }
+    }
+    
+    private int getFrame(TenPatchDrawable drawable, float time) {
+        Array<TextureRegion> regions = drawable.getRegions();
+        return regions != null && regions.size > 0 ? drawable.getKeyFrameIndex(time) : 0;
+    }
+    
+    /**
+     * Draws every instance. The color of the batch is multiplied with the colors of the instances.
+     * @param batch
+     */
+    public void draw(Batch batch) {
+        draw(batch, 0, size);
+    }
+    
+    /**
+     * Draws the instances from start, inclusive, to end, exclusive.
+     * @param batch
+     * @param start
+     * @param end
+     */
+    public void draw(Batch batch, int start, int end) {
+        if (emitter == null) emitter = new Emitter(this);
+        emitter.emit(start, end, batch.getColor(), batch);
+    }
+    
+    /**
+     * Writes the vertices of a range of instances and submits them to a batch later. Each Emitter keeps its own
+     * copies of the definitions, so Emitters of the same system can emit different ranges on different threads at
+     * the same time as long as the instances and definitions are not modified meanwhile. Call updateDefinitions() on
+     * the thread that owns the system before emitting on another thread. Only draw() must be called on the thread of
+     * the batch.
+     */
+    public static class Emitter {
+        /**
+         * The number of floats written before they are submitted when an Emitter draws directly to a batch. Small
+         * enough for the vertices to stay in the CPU cache until the batch copies them.
+         */
+        private static final int FLUSH_SIZE = 8192;
+        private final TenPatchSystem system;
+        private final FloatArray vertices = new FloatArray(1024);
+        /**
+         * The texture of each run of consecutive instances that share a texture.
+         */
+        private final Array<Texture> textures = new Array<Texture>();
+        /**
+         * The index in vertices where each run ends.
+         */
+        private final IntArray ends = new IntArray();
+        private TenPatchDrawable[] copies = new TenPatchDrawable[0];
+        private int version = -1;
+        private final Color tint = new Color();
+        private final Color instanceTint = new Color();
+        
+        public Emitter(TenPatchSystem system) {
+            this.system = system;
+        }
+        
+        /**
+         * Writes the vertices of the instances from start, inclusive, to end, exclusive, replacing the vertices
+         * written before.
+         * @param start
+         * @param end
+         * @param tint The color multiplied with the colors of the instances, usually the color of the batch.
+         */
+        public void emit(int start, int end, Color tint) {
+            emit(start, end, tint, null);
+        }
+        
+        /**
+         * Writes the vertices of the instances and, if the batch is not null, submits them whenever FLUSH_SIZE floats
+         * have been written and at the end.
+         */
+        void emit(int start, int end, Color tint, Batch batch) {
+            TenPatchSystem system = this.system;
+            updateDefinitions();
+            this.tint.set(tint);
+            vertices.clear();
+            textures.clear();
+            ends.clear();
+            
+            TenPatchDrawable[] copies = this.copies;
+            FloatArray vertices = this.vertices;
+            float[] x = system.x, y = system.y, width = system.width, height = system.height, color = system.color;
+            float[] offsetX = system.offsetX, offsetY = system.offsetY;
+            int[] definition = system.definition, frame = system.frame;
+            for (int i = start; i < end; i++) {
+                TenPatchDrawable drawable = copies[definition[i]];
+                Array<TextureRegion> regions = drawable.getRegions();
+                if (regions != null && regions.size > 0) {
+                    TextureRegion region = regions.get(frame[i]);
+                    if (drawable.getRegion() != region) drawable.setRegion(region);
+                }
+                drawable.offsetX = offsetX[i];
+                drawable.offsetY = offsetY[i];
+                Color.abgr8888ToColor(instanceTint, color[i]);
+                instanceTint.mul(this.tint);
+                
+                int previous = vertices.size;
+                drawable.appendVertices(vertices, instanceTint, x[i], y[i], width[i], height[i]);
+                if (vertices.size == previous) continue;
+                Texture texture = drawable.getRegion().getTexture();
+                if (textures.size > 0 && textures.peek() == texture) {
+                    ends.items[ends.size - 1] = vertices.size;
+                } else {
+                    textures.add(texture);
+                    ends.add(vertices.size);
+                }
+                if (batch != null && vertices.size >= FLUSH_SIZE) {
+                    draw(batch);
+                    vertices.clear();
+                    textures.clear();
+                    ends.clear();
+                }
+            }
+            if (batch != null) draw(batch);
+        }
+        
+        /**
+         * Submits the vertices written by the last emit() to the batch.
+         * @param batch
+         */
+        public void draw(Batch batch) {
+            int start = 0;
+            for (int i = 0; i < textures.size; i++) {
+                int end = ends.get(i);
+                batch.draw(textures.get(i), vertices.items, start, end - start);
+                start = end;
+            }
+        }
+        
+        /**
+         * Returns the number of vertices written by the last emit().
+         * @return
+         */
+        public int getVertexCount() {
+            return vertices.size / 5;
+        }
+        
+        /**
+         * Copies the definitions of the system if they changed since the last copy. Creating a TenPatchDrawable uses
+         * the random number generator of MathUtils, which is not thread safe, so call this on the thread that owns the
+         * system before emitting on another thread.
+         */
+        public void updateDefinitions() {
+            if (version != system.definitionsVersion) copyDefinitions();
+        }
+        
+        private void copyDefinitions() {
+            TenPatchDrawable[] definitions = system.definitionItems;
+            copies = new TenPatchDrawable[definitions.length];
+            for (int i = 0; i < definitions.length; i++) {
+                TenPatchDrawable copy = new TenPatchDrawable(definitions[i]);
+                copy.setAutoUpdate(false);
+                copy.setRenderCache(null);
+                copies[i] = copy;
+            }
+            version = system.definitionsVersion;
+        }
+    }
+}
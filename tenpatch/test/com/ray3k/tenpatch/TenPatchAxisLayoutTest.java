@@ -0,0 +1,219 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.FloatArray;
+import com.ray3k.tenpatch.TenPatchDrawable.CrushMode;
+import com.ray3k.tenpatch.TenPatchDrawable.VertexLayout;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the separable axis layout with the cell loop that TenPatchDrawable used before it. The reference below is
+ * the cell loop without tiling or a transform, which is everything that decides the position and texture coordinates
+ * of a cell.
+ * @author Raymond Buckley
+ */
+public class TenPatchAxisLayoutTest {
+    private static final float EPSILON = .0001f;
+    private static final int[][] HORIZONTAL_AREAS = {{2, 5}, {0, 3, 8, 10}, {4, 4}, {}};
+    private static final int[][] VERTICAL_AREAS = {{3, 6}, {0, 2}, {1, 2, 5, 9}, {}};
+    private static final float[][] SIZES = {{12, 14}, {40, 50}, {5, 4}, {0, 0}, {100.7f, 3}, {2, 80}, {9.5f, 11.25f}};
+
+    private static Texture texture;
+
+    @BeforeClass
+    public static void createTexture() {
+        HeadlessGdx.init();
+        Pixmap pixmap = new Pixmap(64, 32, Pixmap.Format.RGBA8888);
+        texture = new Texture(pixmap);
+        pixmap.dispose();
+    }
+
+    @AfterClass
+    public static void disposeTexture() {
+        texture.dispose();
+    }
+
+    @Test
+    public void matchesCellLoopInAllCrushModes() {
+        TextureRegion region = new TextureRegion(texture, 3, 5, 12, 14);
+        float[] vertices = new float[4096];
+        for (TextureFilter filter : new TextureFilter[] {TextureFilter.Nearest, TextureFilter.Linear}) {
+            texture.setFilter(filter, filter);
+            for (int areas = 0; areas < HORIZONTAL_AREAS.length; areas++) {
+                TenPatchDrawable drawable = new TenPatchDrawable(HORIZONTAL_AREAS[areas], VERTICAL_AREAS[areas], false, region);
+                //corner colors keep adjacent cells from being merged, so every cell is written as its own quad
+                drawable.setColors(Color.WHITE, Color.WHITE, Color.WHITE, Color.WHITE);
+                for (int crushMode = CrushMode.SHRINK; crushMode <= CrushMode.NONE; crushMode++) {
+                    drawable.setCrushMode(crushMode);
+                    for (float scale : new float[] {1f, 2f}) {
+                        drawable.setScale(scale);
+                        for (float[] size : SIZES) {
+                            String message = "filter=" + filter + " areas=" + areas + " crushMode=" + crushMode
+                                    + " scale=" + scale + " size=" + size[0] + "x" + size[1];
+                            FloatArray expected = new FloatArray();
+                            drawCellLoop(drawable, 7.5f, -3f, size[0], size[1], expected);
+
+                            int count = drawable.writeVertices(vertices, 0, VertexLayout.SPRITE_BATCH, 7.5f, -3f, size[0], size[1]);
+                            FloatArray actual = new FloatArray();
+                            for (int i = 0; i < count * 5; i += 20) {
+                                addQuad(actual, vertices[i], vertices[i + 1], vertices[i + 10], vertices[i + 11],
+                                        vertices[i + 3], vertices[i + 4], vertices[i + 13], vertices[i + 14]);
+                            }
+
+                            assertEquals(message, expected.size, actual.size);
+                            for (int i = 0; i < expected.size; i++) {
+                                assertEquals(message + " value=" + i, expected.get(i), actual.get(i), EPSILON);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores a quad by its corners and texture coordinates. Empty quads draw nothing and are skipped.
+     */
+    private static void addQuad(FloatArray quads, float x, float y, float x2, float y2, float u, float v, float u2, float v2) {
+        if (x == x2 || y == y2) return;
+        quads.addAll(x, y, x2, y2, u, v, u2, v2);
+    }
+
+    /**
+     * The size of a non-stretching cell in the crush mode of the drawable.
+     * @param accumulator The size cropped so far by the previous cells of the row or column.
+     */
+    private static float crush(int crushMode, float size, float minSize, float cellSize, float[] accumulator) {
+        float drawSize;
+        if (size > minSize || crushMode == CrushMode.NONE) {
+            drawSize = cellSize;
+        } else if (crushMode == CrushMode.CROP) {
+            drawSize = Math.min(cellSize, size - accumulator[0]);
+            accumulator[0] += drawSize;
+        } else if (crushMode == CrushMode.CROP_REVERSED) {
+            float sizeToMakeUp = minSize - size - accumulator[0];
+            drawSize = MathUtils.clamp(cellSize - sizeToMakeUp, 0, cellSize);
+            accumulator[0] += MathUtils.clamp(sizeToMakeUp, 0, cellSize);
+        } else {
+            drawSize = cellSize * size / minSize;
+        }
+        return Math.max(drawSize, 0);
+    }
+
+    /**
+     * The cell loop of TenPatchDrawable#draw() before the axis layout.
+     */
+    private static void drawCellLoop(TenPatchDrawable drawable, float x, float y, float width, float height, FloatArray quads) {
+        int[] horizontalStretchAreas = drawable.getHorizontalStretchAreas();
+        int[] verticalStretchAreas = drawable.getVerticalStretchAreas();
+        int crushMode = drawable.getCrushMode();
+        TextureRegion region = drawable.getRegion();
+        Texture texture = region.getTexture();
+        boolean linear = texture.getMagFilter() == TextureFilter.Linear || texture.getMinFilter() == TextureFilter.Linear;
+        float w = region.getRegionWidth() * drawable.getScaleX();
+        float h = region.getRegionHeight() * drawable.getScaleY();
+        float u = region.getU();
+        float u2 = region.getU2();
+        float v = region.getV2();
+        float v2 = region.getV();
+
+        float extraWidth = MathUtils.floor(width) - w;
+        float extraHeight = MathUtils.floor(height) - h;
+
+        float totalWidthStretch = 0f;
+        for (int i = 0; i < horizontalStretchAreas.length; i += 2) {
+            totalWidthStretch += horizontalStretchAreas[i + 1] - horizontalStretchAreas[i] + 1;
+        }
+        totalWidthStretch *= drawable.getScaleX();
+        float totalHeightStretch = 0f;
+        for (int i = 0; i < verticalStretchAreas.length; i += 2) {
+            totalHeightStretch += verticalStretchAreas[i + 1] - verticalStretchAreas[i] + 1;
+        }
+        totalHeightStretch *= drawable.getScaleY();
+
+        float originY = 0;
+        float texY1 = 0;
+        float[] cropAccumulatorY = new float[1];
+        for (int yIndex = 0; yIndex <= verticalStretchAreas.length; yIndex++) {
+            boolean stretchRow = yIndex % 2 == 1;
+            float texY2 = stretchRow ? (verticalStretchAreas[yIndex] + 1) * drawable.getScaleY()
+                    : yIndex < verticalStretchAreas.length ? verticalStretchAreas[yIndex] * drawable.getScaleY() : h;
+            float drawHeight = stretchRow ? Math.max(texY2 - texY1 + extraHeight * (texY2 - texY1) / totalHeightStretch, 0)
+                    : crush(crushMode, height, h - totalHeightStretch, texY2 - texY1, cropAccumulatorY);
+
+            float originX = 0;
+            float texX1 = 0;
+            float[] cropAccumulatorX = new float[1];
+            for (int xIndex = 0; xIndex <= horizontalStretchAreas.length; xIndex++) {
+                boolean stretchColumn = xIndex % 2 == 1;
+                float texX2 = stretchColumn ? (horizontalStretchAreas[xIndex] + 1) * drawable.getScaleX()
+                        : xIndex < horizontalStretchAreas.length ? horizontalStretchAreas[xIndex] * drawable.getScaleX() : w;
+                float drawWidth = stretchColumn ? Math.max(texX2 - texX1 + extraWidth * (texX2 - texX1) / totalWidthStretch, 0)
+                        : crush(crushMode, width, w - totalWidthStretch, texX2 - texX1, cropAccumulatorX);
+
+                //stretching cells are never cropped along the axis they stretch in
+                float cropX1 = texX1, cropX2 = texX2, cropY1 = texY1, cropY2 = texY2;
+                if (crushMode == CrushMode.CROP) {
+                    if (!stretchColumn) cropX2 = Math.min(texX1 + drawWidth, texX2);
+                    if (!stretchRow) cropY2 = Math.min(texY1 + drawHeight, texY2);
+                } else if (crushMode == CrushMode.CROP_REVERSED) {
+                    if (!stretchColumn) cropX1 = Math.max(texX2 - drawWidth, texX1);
+                    if (!stretchRow) cropY1 = Math.max(texY2 - drawHeight, texY1);
+                }
+                float drawU = u + (u2 - u) * cropX1 / w;
+                float drawU2 = u + (u2 - u) * cropX2 / w;
+                float drawV = v + (v2 - v) * cropY1 / h;
+                float drawV2 = v + (v2 - v) * cropY2 / h;
+
+                //linear filtering would bleed the neighboring texels into a stretched cell. Since the stretch areas
+                //are normalized, an axis drawn at its natural size is not inset because its cells are drawn 1:1.
+                if (linear && stretchColumn && extraWidth != 0) {
+                    drawU += .5f / texture.getWidth();
+                    drawU2 -= .5f / texture.getWidth();
+                }
+                if (linear && stretchRow && extraHeight != 0) {
+                    drawV -= .5f / texture.getHeight();
+                    drawV2 += .5f / texture.getHeight();
+                }
+
+                addQuad(quads, x + originX, y + originY, x + originX + drawWidth, y + originY + drawHeight, drawU, drawV, drawU2, drawV2);
+                originX += drawWidth;
+                texX1 = texX2;
+            }
+            originY += drawHeight;
+            texY1 = texY2;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static com.ray3k.tenpatch.TenPatchBatch.MAX_POSITION;
+import static com.ray3k.tenpatch.TenPatchBatch.MIN_POSITION;
+import static com.ray3k.tenpatch.TenPatchBatch.POSITION_BIAS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Packs positions and texture coordinates into the compact vertex format of TenPatchBatch and unpacks them the way the
+ * shader does, after copying the floats to a vertex buffer the way Mesh does.
+ * @author Raymond Buckley
+ */
+public class TenPatchBatchPackingTest {
+    private static final int[] TEX_COORDS = {0, 1, 0x7FFF, 0x8000, 0xFFFE, 0xFFFF};
+    private static final float[] PRECISIONS = {1f, 2f, 16f};
+
+    @BeforeClass
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    @Test
+    public void packedBitsSurviveCopy() {
+        int count = (MAX_POSITION - MIN_POSITION + 1) * TEX_COORDS.length;
+        float[] vertices = new float[count];
+        int i = 0;
+        for (int position = MIN_POSITION; position <= MAX_POSITION; position++) {
+            for (int texCoord : TEX_COORDS) {
+                float packed = TenPatchBatch.pack(position, texCoord);
+                //a NaN or denormal could be changed by the FPU, and floatToIntBits would collapse a NaN
+                assertTrue("position=" + position + " texCoord=" + texCoord, Math.abs(packed) >= Float.MIN_NORMAL);
+                assertTrue("position=" + position + " texCoord=" + texCoord, !Float.isInfinite(packed));
+                assertEquals(Float.floatToRawIntBits(packed), Float.floatToIntBits(packed));
+                vertices[i++] = packed;
+            }
+        }
+
+        FloatBuffer buffer = BufferUtils.newFloatBuffer(count);
+        BufferUtils.copy(vertices, buffer, count, 0);
+        ByteBuffer bytes = BufferUtils.newByteBuffer(count * 4);
+        bytes.asFloatBuffer().put(buffer);
+        i = 0;
+        for (int position = MIN_POSITION; position <= MAX_POSITION; position++) {
+            for (int texCoord : TEX_COORDS) {
+                int bits = bytes.getInt(i++ * 4);
+                assertEquals(position, bits >>> 16);
+                assertEquals(texCoord, bits & 0xFFFF);
+            }
+        }
+    }
+
+    @Test
+    public void positionsRoundTripAtRangeLimits() {
+        for (float precision : PRECISIONS) {
+            float origin = -1234.5f;
+            float min = origin + (MIN_POSITION - POSITION_BIAS) / precision;
+            float max = origin + (MAX_POSITION - POSITION_BIAS) / precision;
+            float[] values = {min, min + .25f / precision, origin, origin + 1f / precision, max - .25f / precision, max};
+            for (float value : values) {
+                float decoded = decodePosition(TenPatchBatch.encodePosition(value, origin, precision), origin, precision);
+                assertEquals("precision=" + precision + " value=" + value, value, decoded, .5f / precision);
+            }
+
+            //positions past the limits are clamped to them
+            assertEquals(MIN_POSITION, TenPatchBatch.encodePosition(min - 10f / precision, origin, precision));
+            assertEquals(MAX_POSITION, TenPatchBatch.encodePosition(max + 10f / precision, origin, precision));
+        }
+    }
+
+    @Test
+    public void texCoordsRoundTripAtRangeLimits() {
+        float[] values = {0f, 1f / 65535f, .25f, .5f, 1f - 1f / 65535f, 1f};
+        for (float value : values) {
+            int encoded = TenPatchBatch.encodeTexCoord(value);
+            int bits = Float.floatToRawIntBits(TenPatchBatch.pack(POSITION_BIAS, encoded));
+            assertEquals("value=" + value, value, (bits & 0xFFFF) / 65535f, .5f / 65535f);
+        }
+        assertEquals(0, TenPatchBatch.encodeTexCoord(-.5f));
+        assertEquals(0xFFFF, TenPatchBatch.encodeTexCoord(1.5f));
+    }
+
+    /**
+     * Decodes a position the way the flush matrix does.
+     */
+    private static float decodePosition(int position, float origin, float precision) {
+        return (position - POSITION_BIAS) / precision + origin;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.tenpatch;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.ray3k.tenpatch.TenPatchDrawable.CrushMode;
+import com.ray3k.tenpatch.TenPatchDrawable.VertexLayout;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saves the layouts of a TenPatchLayoutStore and loads them into a new store. Layouts read from the file must draw the
+ * same vertices as calculated layouts. Files that are corrupt or of another version must be ignored.
+ * @author Raymond Buckley
+ */
+public class TenPatchLayoutStoreTest {
+    private static final float[][] SIZES = {{12, 14}, {40, 50}, {5, 4}, {100.7f, 3}};
+
+    private static Texture texture;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createTexture() {
+        HeadlessGdx.init();
+        Pixmap pixmap = new Pixmap(64, 32, Pixmap.Format.RGBA8888);
+        texture = new Texture(pixmap);
+        texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        pixmap.dispose();
+    }
+
+    @AfterClass
+    public static void disposeTexture() {
+        texture.dispose();
+    }
+
+    @Test
+    public void loadedLayoutsDrawTheSame() throws IOException {
+        TenPatchLayoutStore store = new TenPatchLayoutStore();
+        float[] expected = draw(store);
+        FileHandle file = new FileHandle(folder.newFile("layouts.bin"));
+        store.save(file);
+
+        TenPatchLayoutStore loaded = new TenPatchLayoutStore();
+        assertTrue(loaded.load(file));
+        assertEquals(store.getLayoutCount(), loaded.getLoadedCount());
+        assertArrayEquals(expected, draw(loaded), 0f);
+        assertEquals(0, loaded.getMisses());
+        assertTrue(loaded.getHits() > 0);
+
+        //the loaded file isn't held open, so it can be replaced
+        loaded.save(file);
+        TenPatchLayoutStore reloaded = new TenPatchLayoutStore();
+        assertTrue(reloaded.load(file));
+        assertEquals(store.getLayoutCount(), reloaded.getLoadedCount());
+        assertArrayEquals(expected, draw(reloaded), 0f);
+        assertEquals(0, reloaded.getMisses());
+    }
+
+    @Test
+    public void missingFileIsIgnored() {
+        TenPatchLayoutStore store = new TenPatchLayoutStore();
+        assertFalse(store.load(new FileHandle(folder.getRoot()).child("missing.bin")));
+        assertEquals(0, store.getLoadedCount());
+    }
+
+    @Test
+    public void otherVersionIsIgnored() throws IOException {
+        byte[] bytes = save();
+        ByteBuffer.wrap(bytes).putInt(4, TenPatchLayoutStore.VERSION - 1);
+        assertIgnored(bytes);
+        ByteBuffer.wrap(bytes).putInt(4, TenPatchLayoutStore.VERSION + 1);
+        assertIgnored(bytes);
+    }
+
+    @Test
+    public void corruptFileIsIgnored() throws IOException {
+        byte[] bytes = save();
+
+        //truncated in the header, in the keys, and in the spans of the last layout
+        for (int length : new int[] {0, 3, 10, bytes.length / 2, bytes.length - 1}) {
+            assertIgnored(Arrays.copyOf(bytes, length));
+        }
+
+        //a different file type
+        byte[] magic = Arrays.copyOf(bytes, bytes.length);
+        magic[0] ^= 0xFF;
+        assertIgnored(magic);
+
+        //a layout count larger than the file
+        byte[] count = Arrays.copyOf(bytes, bytes.length);
+        ByteBuffer.wrap(count).putInt(8, Integer.MAX_VALUE);
+        assertIgnored(count);
+
+        //a stretch area count that is negative or larger than the file
+        for (int length : new int[] {-1, Integer.MAX_VALUE}) {
+            byte[] areas = Arrays.copyOf(bytes, bytes.length);
+            ByteBuffer.wrap(areas).putInt(12, length);
+            assertIgnored(areas);
+        }
+    }
+
+    /**
+     * Loads the bytes as a file, which must be ignored. The layouts are then calculated and drawn as without a store.
+     */
+    private void assertIgnored(byte[] bytes) throws IOException {
+        FileHandle file = new FileHandle(folder.newFile());
+        file.writeBytes(bytes, false);
+        TenPatchLayoutStore store = new TenPatchLayoutStore();
+        assertFalse(store.load(file));
+        assertEquals(0, store.getLoadedCount());
+        assertArrayEquals(draw(new TenPatchLayoutStore()), draw(store), 0f);
+        assertEquals(0, store.getHits());
+    }
+
+    private byte[] save() throws IOException {
+        TenPatchLayoutStore store = new TenPatchLayoutStore();
+        draw(store);
+        FileHandle file = new FileHandle(folder.newFile());
+        store.save(file);
+        return file.readBytes();
+    }
+
+    /**
+     * Draws new drawables that use the store in every crush mode and size and returns all of their vertices.
+     */
+    private static float[] draw(TenPatchLayoutStore store) {
+        TextureRegion region = new TextureRegion(texture, 3, 5, 12, 14);
+        float[] vertices = new float[4096];
+        float[] result = new float[0];
+        for (int crushMode = CrushMode.SHRINK; crushMode <= CrushMode.NONE; crushMode++) {
+            TenPatchDrawable drawable = new TenPatchDrawable(new int[] {0, 3, 8, 10}, new int[] {1, 2, 5, 9}, false, region);
+            drawable.setCrushMode(crushMode);
+            store.add(drawable);
+            for (float[] size : SIZES) {
+                int count = drawable.writeVertices(vertices, 0, VertexLayout.SPRITE_BATCH, 0, 0, size[0], size[1]) * 5;
+                int length = result.length;
+                result = Arrays.copyOf(result, length + count);
+                System.arraycopy(vertices, 0, result, length, count);
+            }
+        }
+        return result;
+    }
+}